@@ -0,0 +1,56 @@
+package com.github.rmannibucau.cdi.configuration.benchmark;
+
+import java.net.URL;
+import java.util.List;
+
+public final class Beans {
+    private Beans() {
+        // no-op
+    }
+
+    public static class Simple {
+        private String name;
+        private int count;
+        private URL url;
+        private List<Integer> values;
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    public static class Immutable {
+        private final String name;
+        private final int count;
+
+        public Immutable(final String name, final int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class SimpleFactory {
+        private String name;
+        private int count;
+
+        public Immutable create() {
+            return new Immutable(name, count);
+        }
+
+        public static Immutable createStatic() {
+            return new Immutable("static", 0);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.rmannibucau.cdi.configuration.benchmark;
+
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+import com.github.rmannibucau.cdi.configuration.xml.ConfigParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigParserBenchmark {
+    @Param({ "10", "10000" })
+    private int beans;
+
+    private byte[] document;
+
+    @Setup
+    public void generate() throws Exception {
+        final StringBuilder builder = new StringBuilder("<?xml version=\"1.0\"?>\n<cdi-beans xmlns:p=\"property\" xmlns:list=\"list\">\n");
+        for (int i = 0; i < beans; i++) {
+            switch (i % 3) {
+                case 0:
+                    builder.append("  <bean").append(i).append(" class=\"").append(Beans.Simple.class.getName()).append("\" scope=\"application\">\n")
+                        .append("    <name>bean").append(i).append("</name>\n")
+                        .append("    <count>").append(i).append("</count>\n")
+                        .append("  </bean").append(i).append(">\n");
+                    break;
+                case 1:
+                    builder.append("  <bean").append(i).append(" class=\"").append(Beans.Simple.class.getName()).append("\" p:name=\"inline\" p:count=\"1\" />\n");
+                    break;
+                default:
+                    builder.append("  <list:bean").append(i).append(" type=\"java.lang.Integer\" item-0=\"0\" item-1=\"1\" item-2=\"2\" />\n");
+            }
+        }
+        builder.append("</cdi-beans>\n");
+        document = builder.toString().getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Collection<ConfigBean> parse() throws Exception {
+        return ConfigParser.parse(new ByteArrayInputStream(document));
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.rmannibucau.cdi.configuration.benchmark;
+
+import com.github.rmannibucau.cdi.configuration.factory.Converter;
+import com.github.rmannibucau.cdi.configuration.reflect.ParameterizedTypeImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.xml.namespace.QName;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConverterBenchmark {
+    @Param({ "string", "int", "boolean", "bigdecimal", "enum", "url", "qname", "list", "map", "array" })
+    private String type;
+
+    private Type target;
+    private String value;
+
+    @Setup
+    public void select() {
+        if ("string".equals(type)) {
+            target = String.class;
+            value = "a string";
+        } else if ("int".equals(type)) {
+            target = int.class;
+            value = "12345";
+        } else if ("boolean".equals(type)) {
+            target = Boolean.class;
+            value = "true";
+        } else if ("bigdecimal".equals(type)) {
+            target = BigDecimal.class;
+            value = "1234.5678";
+        } else if ("enum".equals(type)) {
+            target = TimeUnit.class;
+            value = "SECONDS";
+        } else if ("url".equals(type)) {
+            target = URL.class;
+            value = "http://localhost:8080/foo";
+        } else if ("qname".equals(type)) {
+            target = QName.class;
+            value = "{http://foo.com/}Service";
+        } else if ("list".equals(type)) {
+            target = new ParameterizedTypeImpl(List.class, new Type[] { Integer.class });
+            value = "1,2,3,4,5,6,7,8,9,10";
+        } else if ("map".equals(type)) {
+            target = new ParameterizedTypeImpl(Map.class, new Type[] { String.class, Integer.class });
+            value = "a=1,b=2,c=3,d=4";
+        } else if ("array".equals(type)) {
+            target = Integer[].class;
+            value = "1,2,3,4,5,6,7,8,9,10";
+        } else {
+            throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public Object convert() {
+        return Converter.convertTo(target, value);
+    }
+}
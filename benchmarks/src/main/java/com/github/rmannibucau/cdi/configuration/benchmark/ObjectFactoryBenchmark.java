@@ -0,0 +1,65 @@
+package com.github.rmannibucau.cdi.configuration.benchmark;
+
+import com.github.rmannibucau.cdi.configuration.factory.ObjectFactory;
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives ObjectFactory directly (no container) so references are not benchmarked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ObjectFactoryBenchmark {
+    @Param({ "new", "constructor", "method", "static-method" })
+    private String factory;
+
+    private ObjectFactory<Object> objectFactory;
+
+    @Setup
+    public void setUp() {
+        objectFactory = new ObjectFactory<Object>(model(factory));
+    }
+
+    @Benchmark
+    public Object create() {
+        return objectFactory.create();
+    }
+
+    @Benchmark
+    public Object newObjectFactory() { // factory construction cost, paid at deployment or on first use if lazy
+        return new ObjectFactory<Object>(model(factory));
+    }
+
+    private static ConfigBean model(final String factory) {
+        final ConfigBean bean;
+        if ("new".equals(factory)) {
+            bean = new ConfigBean("simple", Beans.Simple.class.getName(), null);
+            bean.getDirectAttributes().put("url", "http://localhost:8080");
+            bean.getDirectAttributes().put("values", "1,2,3");
+        } else if ("constructor".equals(factory)) {
+            bean = new ConfigBean("constructor", Beans.Immutable.class.getName(), null, null, null, null, null, null, true);
+        } else if ("method".equals(factory)) {
+            bean = new ConfigBean("method", Beans.Immutable.class.getName(), null, null, Beans.SimpleFactory.class.getName(), "create", null, null, false);
+        } else if ("static-method".equals(factory)) {
+            return new ConfigBean("static", Beans.Immutable.class.getName(), null, null, Beans.SimpleFactory.class.getName(), "createStatic", null, null, false);
+        } else {
+            throw new IllegalArgumentException(factory);
+        }
+
+        bean.getDirectAttributes().put("name", "bench");
+        bean.getDirectAttributes().put("count", "5");
+        bean.getAttributeOrder().add("name");
+        bean.getAttributeOrder().add("count");
+        return bean;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.rmannibucau.cdi.configuration.benchmark;
+
+import com.github.rmannibucau.cdi.configuration.factory.ObjectFactory;
+import com.github.rmannibucau.cdi.configuration.xml.handlers.PropertiesHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PropertiesFactoryBenchmark {
+    @Param({ "true", "false" })
+    private boolean cached;
+
+    @Param({ "false", "true" })
+    private boolean mapped;
+
+    @Param({ "10", "1000" })
+    private int entries;
+
+    private File file;
+    private ObjectFactory<Properties> factory;
+
+    @Setup
+    public void createFile() throws Exception {
+        file = File.createTempFile("cdi-light-config-benchmark", ".properties");
+        final Properties properties = new Properties();
+        for (int i = 0; i < entries; i++) {
+            properties.setProperty("key." + i, "value-" + i);
+        }
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            properties.store(os, "benchmark");
+        } finally {
+            os.close();
+        }
+
+        final AttributesImpl attributes = new AttributesImpl();
+        attributes.addAttribute("", "path", "path", "CDATA", file.getAbsolutePath());
+        attributes.addAttribute("", "cached", "cached", "CDATA", Boolean.toString(cached));
+        attributes.addAttribute("", "mapped", "mapped", "CDATA", Boolean.toString(mapped));
+        factory = new ObjectFactory<Properties>(new PropertiesHandler().createBean("props", attributes));
+    }
+
+    @TearDown
+    public void deleteFile() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public Properties create() {
+        return factory.create();
+    }
+}
@@ -1,9 +1,19 @@
 package com.github.rmannibucau.cdi.configuration;
 
 import com.github.rmannibucau.cdi.configuration.factory.ContextualFactory;
+import com.github.rmannibucau.cdi.configuration.index.ConfigIndex;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
+import com.github.rmannibucau.cdi.configuration.metrics.BeanMetrics;
+import com.github.rmannibucau.cdi.configuration.metrics.BeanMetricsListener;
+import com.github.rmannibucau.cdi.configuration.metrics.Jmx;
+import com.github.rmannibucau.cdi.configuration.metrics.StartupMetrics;
 import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
 import com.github.rmannibucau.cdi.configuration.reflect.ParameterizedTypeImpl;
+import com.github.rmannibucau.cdi.configuration.reload.ConfigurationReloader;
+import com.github.rmannibucau.cdi.configuration.reload.ConfigurationWatcher;
+import com.github.rmannibucau.cdi.configuration.xml.ConfigBeanConsumer;
 import com.github.rmannibucau.cdi.configuration.xml.ConfigParser;
+import com.github.rmannibucau.cdi.configuration.xml.StaxConfigParser;
 import org.apache.deltaspike.core.api.config.ConfigResolver;
 import org.apache.deltaspike.core.spi.activation.Deactivatable;
 import org.apache.deltaspike.core.util.ClassDeactivationUtils;
@@ -11,19 +21,31 @@ import org.apache.deltaspike.core.util.bean.BeanBuilder;
 
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
+import javax.management.ObjectName;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Enumeration;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import static com.github.rmannibucau.cdi.configuration.loader.ClassLoaders.tccl;
@@ -34,20 +56,67 @@ public class LightConfigurationExtension implements Extension, Deactivatable {
     private static final Logger LOGGER = Logger.getLogger(LightConfigurationExtension.class.getName());
 
     private final Map<String, ConfigBean> beans = new HashMap<String, ConfigBean>();
+    private final Map<String, URL> indexes = new HashMap<String, URL>();
+    private final Map<String, URL> origins = new HashMap<String, URL>(); // only when watching
+    private ClassLoader loader; // the application one, keys the static caches
     private boolean activated;
+    private boolean watch;
+    private boolean stax;
+    private int bufferSize;
+    private ConfigurationReloader reloader;
+    private ConfigurationWatcher watcher;
+    private StartupMetrics metrics; // null if not activated
+    private ObjectName metricsName;
+    private final Collection<ObjectName> beanMetricsNames = new ArrayList<ObjectName>();
 
     void readAllConfigurations(final @Observes BeforeBeanDiscovery bdd) {
         activated = ClassDeactivationUtils.isActivated(LightConfigurationExtension.class);
         if (!activated) {
             return;
         }
+        loader = tccl();
 
         final String configurationName = ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".path", "cdi-configuration.xml");
+        bufferSize = Integer.parseInt(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".buffer-size", "0"));
+        stax = "stax".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".parser", "sax"));
+        watch = "true".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".watch", "false"));
+        if ("true".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".metrics", "false"))) {
+            metrics = new StartupMetrics();
+        }
         try {
-            final Enumeration<URL> resources = tccl().getResources(configurationName);
-            while (resources.hasMoreElements()) {
-                addBeansForUrl(resources.nextElement());
+            if ("true".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".index", "true"))) {
+                for (final URL index : Collections.list(tccl().getResources(configurationName + ConfigIndex.EXTENSION))) {
+                    final String form = index.toExternalForm();
+                    if (form.endsWith(ConfigIndex.EXTENSION)) {
+                        indexes.put(form.substring(0, form.length() - ConfigIndex.EXTENSION.length()), index);
+                    } else {
+                        indexes.put(form, index);
+                    }
+                }
+            }
+
+            final List<URL> urls = Collections.list(tccl().getResources(configurationName));
+            if (urls.size() > 1 && "true".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".parallel", "false"))) {
+                parseInParallel(urls);
+            } else {
+                for (final URL url : urls) {
+                    final int[] count = new int[1];
+                    final long start = System.nanoTime();
+                    final boolean indexed = parse(url, new ConfigBeanConsumer() { // no need to keep the whole file in memory
+                        @Override
+                        public void accept(final ConfigBean bean) {
+                            addBean(url, bean);
+                            count[0]++;
+                        }
+                    });
+                    if (metrics != null) {
+                        metrics.configuration(url.toExternalForm(), System.nanoTime() - start, count[0], indexed);
+                    }
+                    LOGGER.info("Read: " + url.toExternalForm());
+                }
             }
+        } catch (final ConfigurationException e) {
+            throw e;
         } catch (final Exception e) {
             throw new ConfigurationException(e);
         }
@@ -58,29 +127,246 @@ public class LightConfigurationExtension implements Extension, Deactivatable {
             return;
         }
 
-        for (final ConfigBean bean : beans.values()) {
+        final boolean lazy = "true".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".lazy", "false"));
+        if (watch) {
+            reloader = new ConfigurationReloader(bm);
+        }
+        final Collection<BeanMetricsListener> metricsListeners;
+        if ("true".equalsIgnoreCase(ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".runtime-metrics", "false"))) {
+            metricsListeners = new ArrayList<BeanMetricsListener>();
+            for (final BeanMetricsListener listener : ServiceLoader.load(BeanMetricsListener.class, tccl())) {
+                metricsListeners.add(listener);
+            }
+        } else {
+            metricsListeners = null;
+        }
+        // the MBean server is shared by the deployments so the default name is unique per application
+        final String metricsApplication = ConfigResolver.getPropertyValue(LightConfigurationExtension.class.getName() + ".metrics.name",
+            "cdi-light-config-" + Integer.toHexString(System.identityHashCode(tccl())));
+
+        final long slowBeanThreshold = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(ConfigResolver.getPropertyValue(
+            LightConfigurationExtension.class.getName() + ".slow-bean-threshold", "100")));
+        for (final Map.Entry<String, ConfigBean> entry : beans.entrySet()) {
+            final ConfigBean bean = entry.getValue();
             try {
-                final Bean<Object> cdiBean = createBean(bm, bean);
+                final StartupMetrics.BeanTiming timing = metrics != null ? new StartupMetrics.BeanTiming(entry.getKey()) : null;
+                final long start = timing != null ? System.nanoTime() : 0;
+                final Class<?> clazz = tccl().loadClass(bean.getClassname()); // loaded once, shared with the factory
+                final long loaded = timing != null ? System.nanoTime() : 0;
+                if (timing != null) {
+                    timing.classLoading(loaded - start);
+                }
+
+                final BeanMetrics beanMetrics = metricsListeners != null ? new BeanMetrics(entry.getKey(), metricsListeners) : null;
+                final ContextualFactory<Object> factory = new ContextualFactory<Object>(bean, clazz, lazy, beanMetrics, reloader != null);
+                if (timing != null) {
+                    timing.factory(System.nanoTime() - loaded);
+                }
+
+                final Bean<Object> cdiBean = createBean(bm, bean, clazz, factory, timing);
                 abd.addBean(cdiBean);
+                if (reloader != null && bean.getName() != null) {
+                    reloader.register(origins.get(entry.getKey()), factory, cdiBean);
+                }
                 LOGGER.fine("Added bean " + cdiBean.getName());
+
+                if (beanMetrics != null) {
+                    final ObjectName name = Jmx.register(beanMetrics, "type=BeanMetrics,name=" + metricsApplication
+                        + ",bean=" + ObjectName.quote(entry.getKey()));
+                    if (name != null) {
+                        beanMetricsNames.add(name);
+                    }
+                }
+
+                if (timing != null) {
+                    metrics.bean(timing);
+                    if (timing.total() > slowBeanThreshold) {
+                        LOGGER.warning("Slow bean " + timing);
+                    }
+                }
             } catch (final Exception e) {
                 throw new ConfigurationException(e);
             }
         }
+
+        if (metrics != null) {
+            LOGGER.info("Startup metrics: " + metrics.getSummary());
+            for (final String configuration : metrics.getConfigurations()) {
+                LOGGER.fine("Parsed " + configuration);
+            }
+            metricsName = Jmx.register(metrics, "type=StartupMetrics,name=" + metricsApplication);
+        }
     }
 
-    private void addBeansForUrl(final URL url) throws Exception {
-        final InputStream is = url.openStream();
+    void startWatching(final @Observes AfterDeploymentValidation adv) {
+        if (reloader == null) {
+            return;
+        }
+
+        final Collection<URL> urls = new ArrayList<URL>();
+        for (final URL url : reloader.origins()) {
+            if (ConfigurationWatcher.isWatchable(url)) {
+                urls.add(url);
+            } else {
+                LOGGER.info("Can't watch " + url.toExternalForm() + ", only files are supported");
+            }
+        }
+        if (urls.isEmpty()) {
+            return;
+        }
+
         try {
-            for (final ConfigBean bean : ConfigParser.parse(is)) {
-                final String name = bean.getName();
-                if (name != null) {
-                    beans.put(name, bean);
-                } else {
-                    beans.put("_no_name_" + bean.hashCode(), bean);
+            watcher = new ConfigurationWatcher(urls, new ConfigurationWatcher.Listener() {
+                @Override
+                public void onChange(final URL url) {
+                    final Collection<ConfigBean> parsed = new ArrayList<ConfigBean>();
+                    try {
+                        parseXml(url, new ConfigBeanConsumer() {
+                            @Override
+                            public void accept(final ConfigBean bean) {
+                                parsed.add(bean);
+                            }
+                        });
+                    } catch (final ConfigurationException e) {
+                        throw e;
+                    } catch (final Exception e) {
+                        throw new ConfigurationException(e);
+                    }
+                    reloader.reload(url, parsed);
+                }
+            }, tccl());
+        } catch (final IOException e) {
+            throw new ConfigurationException(e);
+        }
+        watcher.start();
+        LOGGER.info("Watching " + urls);
+    }
+
+    void stopWatching(final @Observes BeforeShutdown bs) {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
+    void releaseApplicationState(final @Observes BeforeShutdown bs) {
+        if (loader != null) {
+            ClassLoaderLocal.release(loader);
+            loader = null;
+        }
+    }
+
+    void unregisterMetrics(final @Observes BeforeShutdown bs) {
+        Jmx.unregister(metricsName);
+        metricsName = null;
+        for (final ObjectName name : beanMetricsNames) {
+            Jmx.unregister(name);
+        }
+        beanMetricsNames.clear();
+    }
+
+    private void parseInParallel(final List<URL> urls) throws Exception {
+        final int parallelism = Math.min(urls.size(), Integer.parseInt(ConfigResolver.getPropertyValue(
+            LightConfigurationExtension.class.getName() + ".parallelism", Integer.toString(Runtime.getRuntime().availableProcessors()))));
+        final ClassLoader loader = tccl();
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            final List<Future<Collection<ConfigBean>>> parsed = new ArrayList<Future<Collection<ConfigBean>>>(urls.size());
+            for (final URL url : urls) {
+                parsed.add(pool.submit(new Callable<Collection<ConfigBean>>() {
+                    @Override
+                    public Collection<ConfigBean> call() throws Exception {
+                        final Thread thread = Thread.currentThread();
+                        final ClassLoader old = thread.getContextClassLoader();
+                        thread.setContextClassLoader(loader); // handlers and parser rely on it
+                        try {
+                            final Collection<ConfigBean> beans = new ArrayList<ConfigBean>();
+                            final long start = System.nanoTime();
+                            final boolean indexed = parse(url, new ConfigBeanConsumer() {
+                                @Override
+                                public void accept(final ConfigBean bean) {
+                                    beans.add(bean);
+                                }
+                            });
+                            if (metrics != null) {
+                                metrics.configuration(url.toExternalForm(), System.nanoTime() - start, beans.size(), indexed);
+                            }
+                            return beans;
+                        } finally {
+                            thread.setContextClassLoader(old);
+                        }
+                    }
+                }));
+            }
+
+            // merge in classpath order to keep override semantic whatever the parsing order was
+            for (int i = 0; i < urls.size(); i++) {
+                try {
+                    addBeans(urls.get(i), parsed.get(i).get());
+                } catch (final ExecutionException ee) {
+                    final Throwable cause = ee.getCause();
+                    if (ConfigurationException.class.isInstance(cause)) {
+                        throw ConfigurationException.class.cast(cause);
+                    }
+                    throw new ConfigurationException(Exception.class.isInstance(cause) ? Exception.class.cast(cause) : ee);
                 }
             }
-            LOGGER.info("Read: " + url.toExternalForm());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void addBeans(final URL url, final Collection<ConfigBean> parsed) {
+        for (final ConfigBean bean : parsed) {
+            addBean(url, bean);
+        }
+        LOGGER.info("Read: " + url.toExternalForm());
+    }
+
+    private void addBean(final URL url, final ConfigBean bean) {
+        final String name = bean.getName();
+        final String key;
+        if (name != null) {
+            key = name;
+        } else {
+            key = "_no_name_" + bean.hashCode();
+        }
+        beans.put(key, bean);
+        if (watch) {
+            origins.put(key, url);
+        }
+    }
+
+    // returns true if the index was used
+    private boolean parse(final URL url, final ConfigBeanConsumer consumer) throws Exception {
+        final URL index = indexes.get(url.toExternalForm());
+        if (index != null) {
+            final Collection<ConfigBean> indexed = readIndex(url, index);
+            if (indexed != null) {
+                for (final ConfigBean bean : indexed) {
+                    consumer.accept(bean);
+                }
+                return true;
+            }
+        }
+
+        parseXml(url, consumer);
+        return false;
+    }
+
+    private void parseXml(final URL url, final ConfigBeanConsumer consumer) throws Exception {
+        final InputStream is;
+        if (bufferSize > 0) {
+            is = new BufferedInputStream(url.openStream(), bufferSize);
+        } else {
+            is = url.openStream();
+        }
+        try {
+            if (stax) {
+                StaxConfigParser.parse(is, consumer);
+            } else {
+                ConfigParser.parse(is, consumer);
+            }
         } finally {
             try {
                 is.close();
@@ -90,26 +376,69 @@ public class LightConfigurationExtension implements Extension, Deactivatable {
         }
     }
 
-    private static Bean<Object> createBean(final BeanManager bm, final ConfigBean bean) throws Exception {
+    private static Collection<ConfigBean> readIndex(final URL url, final URL indexUrl) throws IOException {
+        final InputStream index = indexUrl.openStream();
+        try {
+            final long checksum;
+            final InputStream is = url.openStream();
+            try {
+                checksum = ConfigIndex.checksum(is);
+            } finally {
+                try {
+                    is.close();
+                } catch (final IOException ioe) {
+                    // no-op
+                }
+            }
+
+            final Collection<ConfigBean> beans = ConfigIndex.read(index, checksum);
+            if (beans == null) {
+                LOGGER.warning("Index of " + url.toExternalForm() + " is stale, ignoring it");
+            } else {
+                LOGGER.fine("Using index of " + url.toExternalForm());
+            }
+            return beans;
+        } finally {
+            try {
+                index.close();
+            } catch (final IOException ioe) {
+                // no-op
+            }
+        }
+    }
+
+    // timing is null when startup metrics are not activated
+    private static Bean<Object> createBean(final BeanManager bm, final ConfigBean bean, final Class<?> clazz,
+                                           final ContextualFactory<Object> factory,
+                                           final StartupMetrics.BeanTiming timing) throws Exception {
+        final long start = timing != null ? System.nanoTime() : 0;
         final ClassLoader classLoader = tccl();
-        final Class<?> clazz = classLoader.loadClass(bean.getClassname());
+
         final String name = bean.getName();
         final Type type = findType(classLoader, clazz, bean.getTypeParameters());
+        final Class<? extends Annotation> scope = toScope(bean.getScope());
+        final Annotation qualifier = toQualifier(bean.getQualifier(), name);
+        final long resolved = timing != null ? System.nanoTime() : 0;
+        if (timing != null) {
+            timing.resolution(resolved - start);
+        }
 
         final BeanBuilder<Object> beanBuilder = new BeanBuilder<Object>(bm)
             .passivationCapable(true)
             .beanClass(clazz)
             .name(name)
             .types(type, Object.class)
-            .scope(toScope(bean.getScope()))
-            .beanLifecycle(new ContextualFactory<Object>(bean));
-
-        final Annotation qualifier = toQualifier(bean.getQualifier(), name);
+            .scope(scope)
+            .beanLifecycle(factory);
         if (qualifier != null) {
             beanBuilder.qualifiers(qualifier);
         }
 
-        return beanBuilder.create();
+        final Bean<Object> result = beanBuilder.create();
+        if (timing != null) {
+            timing.builder(System.nanoTime() - resolved);
+        }
+        return result;
     }
 
     private static Type findType(final ClassLoader classLoader, final Class<?> base, final Collection<String> typeParameters) throws Exception {
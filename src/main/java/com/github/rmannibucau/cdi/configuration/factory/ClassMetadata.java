@@ -0,0 +1,134 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.beans.Introspector;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reflection data of a class, computed once and shared by all the factories
+ * creating this class. Stored in a ClassValue so it is released with the class.
+ */
+final class ClassMetadata {
+    private static final ClassValue<ClassMetadata> CACHE = new ClassValue<ClassMetadata>() {
+        @Override
+        protected ClassMetadata computeValue(final Class<?> type) {
+            return new ClassMetadata(type);
+        }
+    };
+
+    private final Class<?> clazz;
+    private final Map<String, Method> methodsByName;
+    private final Method postConstruct;
+    private final Method preDestroy;
+    private volatile Constructor<?>[] constructors;
+    private volatile Map<String, ObjectFactory.Setter> setters;
+
+    private ClassMetadata(final Class<?> clazz) {
+        this.clazz = clazz;
+
+        final Map<String, Method> byName = new HashMap<String, Method>();
+        Method postConstructMethod = null;
+        Method preDestroyMethod = null;
+        for (final Class<?> current : hierarchy(clazz)) {
+            for (final Method m : current.getDeclaredMethods()) {
+                if (!byName.containsKey(m.getName())) {
+                    byName.put(m.getName(), m);
+                }
+                if (postConstructMethod == null && m.getAnnotation(PostConstruct.class) != null) {
+                    postConstructMethod = m;
+                }
+                if (preDestroyMethod == null && m.getAnnotation(PreDestroy.class) != null) {
+                    preDestroyMethod = m;
+                }
+            }
+        }
+        this.methodsByName = byName;
+        this.postConstruct = postConstructMethod;
+        this.preDestroy = preDestroyMethod;
+    }
+
+    static ClassMetadata of(final Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * @return the first method named {@code name} walking the hierarchy from the class itself.
+     */
+    Method method(final String name) {
+        return name == null ? null : methodsByName.get(name);
+    }
+
+    Method postConstruct() {
+        return postConstruct;
+    }
+
+    Method preDestroy() {
+        return preDestroy;
+    }
+
+    Constructor<?>[] constructors() {
+        Constructor<?>[] result = constructors;
+        if (result == null) { // racy but idempotent
+            result = clazz.getDeclaredConstructors();
+            constructors = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return setters by property name, a setter method wins over a field with the same name.
+     */
+    Map<String, ObjectFactory.Setter> setters() {
+        Map<String, ObjectFactory.Setter> result = setters;
+        if (result == null) {
+            synchronized (this) {
+                result = setters;
+                if (result == null) {
+                    result = Collections.unmodifiableMap(mapSetters());
+                    setters = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, ObjectFactory.Setter> mapSetters() {
+        final Map<String, ObjectFactory.Setter> members = new HashMap<String, ObjectFactory.Setter>();
+        for (final Class<?> current : hierarchy(clazz)) {
+            for (final Method method : current.getDeclaredMethods()) {
+                final String name = method.getName();
+                if (name.length() > 3 && name.startsWith("set") && method.getParameterTypes().length == 1) {
+                    members.put(Introspector.decapitalize(name.substring(3)), ObjectFactory.newSetter(method));
+                }
+            }
+
+            for (final Field field : current.getDeclaredFields()) {
+                final String name = field.getName();
+                if (members.containsKey(name)) {
+                    continue;
+                }
+
+                members.put(name, ObjectFactory.newSetter(field));
+            }
+        }
+        return members;
+    }
+
+    private static List<Class<?>> hierarchy(final Class<?> clazz) {
+        final List<Class<?>> classes = new ArrayList<Class<?>>();
+        Class<?> current = clazz;
+        while (current != null && !Object.class.equals(current)) {
+            classes.add(current);
+            current = current.getSuperclass();
+        }
+        return classes;
+    }
+}
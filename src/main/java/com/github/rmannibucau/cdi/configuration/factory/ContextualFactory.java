@@ -1,25 +1,232 @@
 package com.github.rmannibucau.cdi.configuration.factory;
 
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
+import com.github.rmannibucau.cdi.configuration.metrics.BeanMetrics;
 import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
 import org.apache.deltaspike.core.util.metadata.builder.ContextualLifecycle;
 
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.spi.Bean;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 public class ContextualFactory<T> implements ContextualLifecycle<T> {
-    private final ObjectFactory<T> delegate;
+    private final ClassLoader loader;
+    private final BeanMetrics metrics;
+    private final boolean reloadable;
+    // what destroy() needs per instance, kept with (and dropped with) the creational context the container passes
+    // to create() and destroy() for an instance, only filled when needed (reloadable factory or factory instance)
+    private final WeakIdentityMap<CreationalContext<?>, Map<Object, Created<T>>> created
+        = new WeakIdentityMap<CreationalContext<?>, Map<Object, Created<T>>>();
+    private volatile ConfigBean model;
+    private volatile ObjectFactory<T> delegate;
 
     public ContextualFactory(final ConfigBean bean) {
-        this.delegate = new ObjectFactory<T>(bean);
+        this(bean, false);
+    }
+
+    public ContextualFactory(final ConfigBean bean, final boolean lazy) {
+        this(bean, lazy, null);
+    }
+
+    /**
+     * @param bean the bean model
+     * @param lazy if true the factory (classes loading, reflection...) is only built on first use
+     * @param metrics if not null creations and destructions are measured
+     */
+    public ContextualFactory(final ConfigBean bean, final boolean lazy, final BeanMetrics metrics) {
+        this(bean, lazy, metrics, false);
+    }
+
+    /**
+     * @param bean the bean model
+     * @param lazy if true the factory (classes loading, reflection...) is only built on first use
+     * @param metrics if not null creations and destructions are measured
+     * @param reloadable if true {@link #refresh(ConfigBean)} can be called, instances are then destroyed
+     *                   by the factory which created them
+     */
+    public ContextualFactory(final ConfigBean bean, final boolean lazy, final BeanMetrics metrics, final boolean reloadable) {
+        this(bean, null, lazy, metrics, reloadable);
+    }
+
+    /**
+     * @param bean the bean model
+     * @param beanClass the bean class if already loaded (it is then not loaded again), can be null
+     * @param lazy if true the factory (classes loading, reflection...) is only built on first use
+     * @param metrics if not null creations and destructions are measured
+     * @param reloadable if true {@link #refresh(ConfigBean)} can be called, instances are then destroyed
+     *                   by the factory which created them
+     */
+    public ContextualFactory(final ConfigBean bean, final Class<?> beanClass, final boolean lazy,
+                             final BeanMetrics metrics, final boolean reloadable) {
+        this.model = bean;
+        this.metrics = metrics;
+        this.reloadable = reloadable;
+        this.loader = ClassLoaders.tccl(); // the deployment one, create() and refresh() can be called from any thread
+        if (!lazy) {
+            this.delegate = new ObjectFactory<T>(bean, beanClass);
+        }
     }
 
     @Override
     public T create(final Bean<T> bean, final CreationalContext<T> creationalContext) {
-        return delegate.create();
+        final ObjectFactory<T> factory = delegate();
+        final Object[] destroyState = factory.hasDestroyState() ? new Object[1] : null;
+        if (metrics == null) {
+            final T instance = factory.newInstance(destroyState);
+            factory.postConstruct(instance);
+            return track(creationalContext, factory, instance, destroyState);
+        }
+
+        final long start = System.nanoTime();
+        try {
+            final T instance = factory.newInstance(destroyState);
+            final long instantiated = System.nanoTime();
+            factory.postConstruct(instance);
+            metrics.created(instantiated - start, System.nanoTime() - instantiated);
+            return track(creationalContext, factory, instance, destroyState);
+        } catch (final RuntimeException e) {
+            metrics.failed(e);
+            throw e;
+        }
     }
 
     @Override
     public void destroy(final Bean<T> bean, final T instance, final CreationalContext<T> creationalContext) {
-        delegate.destroy(instance);
+        final Created<T> creation = untrack(creationalContext, instance);
+        final ObjectFactory<T> factory = creation != null ? creation.factory : delegate();
+        final Object destroyState = creation != null ? creation.destroyState : null;
+        if (metrics == null) {
+            factory.destroy(instance, destroyState);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            factory.destroy(instance, destroyState);
+            metrics.destroyed(System.nanoTime() - start);
+        } catch (final RuntimeException e) {
+            metrics.failed(e);
+            throw e;
+        }
+    }
+
+    public ConfigBean getModel() {
+        return model;
+    }
+
+    /**
+     * Switches to a new configuration, next created instances use it.
+     * Existing instances are still destroyed with the configuration they were created with
+     * if this factory is reloadable.
+     *
+     * @param bean the new bean model, it should define the same CDI bean (type, scope, qualifier).
+     */
+    public void refresh(final ConfigBean bean) {
+        prepareRefresh(bean).apply();
+    }
+
+    /**
+     * Builds the factory of a new configuration without using it yet, it allows to validate several beans
+     * before switching any of them.
+     *
+     * @param bean the new bean model, it should define the same CDI bean (type, scope, qualifier).
+     * @return the refresh to apply.
+     * @throws com.github.rmannibucau.cdi.configuration.ConfigurationException if the configuration is invalid.
+     */
+    public Refresh prepareRefresh(final ConfigBean bean) {
+        final ObjectFactory<T> factory;
+        synchronized (this) {
+            factory = delegate != null ? newFactory(bean) : null; // else keep it lazy
+        }
+        return new Refresh(bean, factory);
+    }
+
+    private T track(final CreationalContext<T> creationalContext, final ObjectFactory<T> factory, final T instance,
+                    final Object[] destroyState) {
+        final Object state = destroyState != null ? destroyState[0] : null;
+        // after a reload the creator is only needed if it has something to destroy
+        if (instance == null || creationalContext == null || (state == null && !(reloadable && factory.hasDestroyCallback()))) {
+            return instance;
+        }
+
+        Map<Object, Created<T>> instances = created.get(creationalContext);
+        if (instances == null) {
+            instances = new IdentityHashMap<Object, Created<T>>(); // identity since instances can override equals()
+            final Map<Object, Created<T>> existing = created.putIfAbsent(creationalContext, instances);
+            if (existing != null) {
+                instances = existing;
+            }
+        }
+        synchronized (instances) { // a creational context is rarely shared between threads
+            instances.put(instance, new Created<T>(factory, state));
+        }
+        return instance;
+    }
+
+    private Created<T> untrack(final CreationalContext<T> creationalContext, final T instance) {
+        if (instance == null || creationalContext == null) {
+            return null;
+        }
+
+        final Map<Object, Created<T>> instances = created.get(creationalContext);
+        if (instances == null) {
+            return null;
+        }
+        synchronized (instances) {
+            return instances.remove(instance);
+        }
+    }
+
+    private ObjectFactory<T> delegate() {
+        ObjectFactory<T> factory = delegate;
+        if (factory == null) {
+            synchronized (this) {
+                factory = delegate;
+                if (factory == null) {
+                    factory = newFactory(model);
+                    delegate = factory;
+                }
+            }
+        }
+        return factory;
+    }
+
+    private ObjectFactory<T> newFactory(final ConfigBean bean) {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader old = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return new ObjectFactory<T>(bean);
+        } finally {
+            thread.setContextClassLoader(old);
+        }
+    }
+
+    public final class Refresh {
+        private final ConfigBean bean;
+        private final ObjectFactory<T> factory; // null to build it lazily
+
+        private Refresh(final ConfigBean bean, final ObjectFactory<T> factory) {
+            this.bean = bean;
+            this.factory = factory;
+        }
+
+        public void apply() {
+            synchronized (ContextualFactory.this) {
+                model = bean;
+                delegate = factory; // if null (lazy) it is built from the new model on first use
+            }
+        }
+    }
+
+    private static final class Created<T> {
+        private final ObjectFactory<T> factory;
+        private final Object destroyState;
+
+        private Created(final ObjectFactory<T> factory, final Object destroyState) {
+            this.factory = factory;
+            this.destroyState = destroyState;
+        }
     }
 }
@@ -1,7 +1,7 @@
 package com.github.rmannibucau.cdi.configuration.factory;
 
 import com.github.rmannibucau.cdi.configuration.ConfigurationException;
-import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
 import org.apache.deltaspike.core.api.config.ConfigResolver;
 import org.apache.deltaspike.core.api.provider.BeanProvider;
 
@@ -9,165 +9,358 @@ import javax.xml.namespace.QName;
 import java.lang.reflect.Array;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.lang.reflect.WildcardType;
-import java.net.MalformedURLException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 public final class Converter {
     private static final String REF_PREFIX = "ref:";
 
+    private static final TypeConverter NO_CONVERTER = new NoConverter();
+    private static final TypeConverter ARRAY_CONVERTER = new ArrayConverter();
+    private static final Collection<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+        String.class, Object.class, Integer.class, Long.class, Short.class, Byte.class, Boolean.class,
+        Double.class, Float.class, Character.class, BigDecimal.class, BigInteger.class,
+        URL.class, URI.class, QName.class, Class.class, Charset.class, Path.class, Pattern.class, InetSocketAddress.class));
+    private static final Logger LOGGER = Logger.getLogger(Converter.class.getName());
+    private static final ClassLoaderLocal<Registry> REGISTRIES = new ClassLoaderLocal<Registry>() {
+        @Override
+        protected Registry initialValue(final ClassLoader loader) {
+            return new Registry(loader);
+        }
+    };
+
     private Converter() {
         // no-op
     }
 
     public static Object convertTo(final Type type, final String rawValue) {
-        final String value = interpolate(rawValue);
+        return convertResolved(type, interpolate(rawValue));
+    }
+
+    // value is already interpolated (elements of a collection): interpolating again would break $${ escapes
+    static Object convertResolved(final Type type, final String value) {
         if (value == null || String.class.equals(type) || Object.class.equals(type)) {
             return value;
         }
-        if (Class.class.isInstance(type)) {
-            final Class<?> rawType = Class.class.cast(type);
+        final Registry registry = REGISTRIES.get();
+        if (registry.cache == null || !isCacheable(type)) {
+            return doConvert(registry, type, value);
+        }
 
-            if (List.class.isAssignableFrom(rawType)) {
-                return Arrays.asList(toArray(String.class, value));
-            }
-            if (Set.class.isAssignableFrom(rawType)) {
-                final Set<Object> set = new HashSet<Object>();
-                set.addAll(Arrays.asList(toArray(String.class, value)));
-                return set;
-            }
-            if (Map.class.isAssignableFrom(rawType)) {
-                return toMap(value, String.class, String.class);
-            }
-            if (Integer.class.equals(type) || Integer.TYPE.equals(type)) {
-                return Integer.parseInt(value);
-            }
-            if (Long.class.equals(type) || Long.TYPE.equals(type)) {
-                return Long.parseLong(value);
-            }
-            if (Short.class.equals(type) || Short.TYPE.equals(type)) {
-                return Short.parseShort(value);
-            }
-            if (Boolean.class.equals(type) || Boolean.TYPE.equals(type)) {
-                return Boolean.parseBoolean(value);
-            }
-            if (Double.class.equals(type) || Double.TYPE.equals(type)) {
-                return Double.parseDouble(value);
-            }
-            if (Float.class.equals(type) || Float.TYPE.equals(type)) {
-                return Float.parseFloat(value);
-            }
-            if (rawType.isArray()) {
-                final Class<?> componentType = rawType.getComponentType();
-                return toArray(componentType, value);
-            }
-            if (URL.class.equals(rawType)) {
-                try {
-                    return new URL(value);
-                } catch (final MalformedURLException e) {
-                    throw new ConfigurationException(e);
-                }
-            }
-            if (URI.class.equals(rawType)) {
-                try {
-                    return new URL(value).toURI();
-                } catch (final Exception e) {
-                    throw new ConfigurationException(e);
-                }
-            }
-            if (QName.class.equals(rawType)) {
-                final int endIdx = value.indexOf("}");
-                if (value.startsWith("{") && endIdx > 0) {
-                    return new QName(value.substring(1, endIdx), value.substring(endIdx + 1));
-                }
-                return new QName(value);
-            }
-            if (Class.class.equals(rawType)) {
-                try {
-                    return ClassLoaders.tccl().loadClass(value);
-                } catch (final ClassNotFoundException e) {
-                    throw new ConfigurationException(e);
-                }
-            }
+        final ConversionKey key = new ConversionKey(type, value);
+        final Object cached = registry.cache.get(key);
+        if (cached != null) {
+            return cached;
         }
-        if (ParameterizedType.class.isInstance(type)) {
-            final ParameterizedType parameterizedType = ParameterizedType.class.cast(type);
-            final Class<?> rawType = Class.class.cast(parameterizedType.getRawType());
 
-            if (Class.class.equals(rawType)) {
-                try {
-                    return ClassLoaders.tccl().loadClass(value);
-                } catch (final ClassNotFoundException e) {
-                    throw new ConfigurationException(e);
-                }
-            }
+        final Object converted = doConvert(registry, type, value);
+        registry.cache.put(key, converted);
+        return converted;
+    }
 
-            final Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
-            final Class<?> param;
-            if (actualTypeArguments.length == 0 || WildcardType.class.isInstance(actualTypeArguments[0])) {
-                param = Object.class;
-            } else {
-                param = (Class<?>) actualTypeArguments[0];
-            }
+    private static Object doConvert(final Registry registry, final Type type, final String value) {
+        final Class<?> rawType;
+        if (Class.class.isInstance(type)) {
+            rawType = Class.class.cast(type);
+        } else if (ParameterizedType.class.isInstance(type)) {
+            rawType = Class.class.cast(ParameterizedType.class.cast(type).getRawType());
+        } else {
+            rawType = null;
+        }
 
-            if (List.class.isAssignableFrom(rawType)) {
-                return Arrays.asList(toArray(param, value));
-            }
-            if (Set.class.isAssignableFrom(rawType)) {
-                final Set<Object> set = new HashSet<Object>();
-                set.addAll(Arrays.asList(toArray(param, value)));
-                return set;
-            }
-            if (Map.class.isAssignableFrom(rawType)) {
-                final Class<?> valueType = (Class<?>) actualTypeArguments[1];
-                return toMap(value, param, valueType);
+        if (rawType != null) {
+            final TypeConverter converter = registry.find(rawType);
+            if (converter != NO_CONVERTER) {
+                return converter.convert(type, value);
             }
         }
 
-        if (value.startsWith("ref:")) {
+        if (value.startsWith(REF_PREFIX)) {
             return BeanProvider.getContextualReference(value.substring(REF_PREFIX.length()));
         }
 
         throw new ConfigurationException("Can't convert '" + value + "' to " + type);
     }
 
-    private static String interpolate(final String rawValue) {
-        if (rawValue == null) {
-            return null;
+    static boolean isReference(final String rawValue) {
+        return rawValue != null && rawValue.startsWith(REF_PREFIX);
+    }
+
+    /**
+     * @param type the target type
+     * @param rawValue the configured value
+     * @return true if the converted value can be computed once and shared between instances
+     */
+    public static boolean isConstant(final Type type, final String rawValue) {
+        return rawValue == null || (isImmutable(type) && !isInterpolated(rawValue));
+    }
+
+    private static boolean isImmutable(final Type type) {
+        if (ParameterizedType.class.isInstance(type)) {
+            return Class.class.equals(ParameterizedType.class.cast(type).getRawType());
         }
-        if (rawValue.startsWith("${") && rawValue.endsWith("}")) {
-            return ConfigResolver.getPropertyValue(rawValue.substring(2, rawValue.length() - 1), rawValue);
+        if (!Class.class.isInstance(type)) {
+            return false;
         }
-        return rawValue;
+
+        final Class<?> clazz = Class.class.cast(type);
+        return clazz.isPrimitive() || clazz.isEnum() || IMMUTABLE_TYPES.contains(clazz)
+            || "java.time.Duration".equals(clazz.getName());
     }
 
-    private static Map<?, ?> toMap(final String value, final Class<?> param, final Class<?> valueType) {
+    // Class is immutable too but depends on the TCCL so it can't be shared
+    private static boolean isCacheable(final Type type) {
+        return isImmutable(type) && !Class.class.equals(type) && !ParameterizedType.class.isInstance(type);
+    }
+
+    static boolean isInterpolated(final String rawValue) {
+        return Template.hasPlaceholder(rawValue);
+    }
+
+    private static String interpolate(final String rawValue) {
+        return Template.interpolate(rawValue);
+    }
+
+    static Map<?, ?> toMap(final String value, final Class<?> param, final Class<?> valueType) {
         final Map<Object, Object> map = new HashMap<Object, Object>();
         final String[] raw = value.split(",");
         for (final String aRaw : raw) {
             final String[] kv = aRaw.split("=");
             if (kv.length == 1) {
-                map.put(convertTo(param, aRaw), null);
+                map.put(convertResolved(param, aRaw), null);
             } else {
-                map.put(convertTo(param, kv[0]), convertTo(valueType, kv[1]));
+                map.put(convertResolved(param, kv[0]), convertResolved(valueType, kv[1]));
             }
         }
         return map;
     }
 
-    private static Object[] toArray(final Class<?> componentType, final String value) {
-        final String[] raw = value.split(",");
-        final Object array = Array.newInstance(componentType, raw.length);
-        for (int i = 0; i < raw.length; i++) {
-            Array.set(array, i, convertTo(componentType, raw[i]));
+    static Object toArray(final Class<?> componentType, final String value) {
+        if (componentType.isPrimitive()) {
+            return PrimitiveArrays.convert(componentType, value);
+        }
+
+        final int end = Csv.end(value);
+        final Object[] array = Object[].class.cast(Array.newInstance(componentType, Csv.count(value, end)));
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            array[i] = convertResolved(componentType, value.substring(start, tokenEnd));
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static void addAll(final Collection<Object> collection, final Class<?> componentType, final String value) {
+        final int end = Csv.end(value);
+        final int count = Csv.count(value, end);
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            collection.add(convertResolved(componentType, value.substring(start, tokenEnd)));
+            start = tokenEnd + 1;
+        }
+    }
+
+    private static class NoConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Void.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            throw new ConfigurationException("Can't convert '" + value + "' to " + type);
+        }
+    }
+
+    private static class ArrayConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Object[].class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return toArray(Class.class.cast(type).getComponentType(), value);
+        }
+    }
+
+    // converters of an application: ServiceLoader ones are loaded with its classloader and must not leak to others
+    private static class Registry {
+        private final Map<Class<?>, TypeConverter> converters = DefaultConverters.converters();
+        private final ConcurrentMap<Class<?>, TypeConverter> resolved = new ConcurrentHashMap<Class<?>, TypeConverter>();
+        private final ConversionCache cache; // null when disabled
+
+        private Registry(final ClassLoader loader) {
+            // opt-in since most values are converted once (see ObjectFactory.NewFactory) but helps factories/handlers
+            final int cacheSize = Integer.parseInt(ConfigResolver.getPropertyValue("cdi.config.converter.cache-size", "0"));
+            cache = cacheSize > 0 ? new ConversionCache(cacheSize) : null;
+
+            final Iterator<TypeConverter> providers = ServiceLoader.load(TypeConverter.class, loader).iterator();
+            while (true) {
+                final TypeConverter converter;
+                try {
+                    if (!providers.hasNext()) {
+                        break;
+                    }
+                    converter = providers.next();
+                } catch (final ServiceConfigurationError e) {
+                    LOGGER.log(Level.SEVERE, "Ignoring invalid converter", e);
+                    continue;
+                }
+                converters.put(converter.type(), converter); // user converters override default ones
+            }
+        }
+
+        private TypeConverter find(final Class<?> type) {
+            final TypeConverter cached = resolved.get(type);
+            if (cached != null) {
+                return cached;
+            }
+
+            final TypeConverter converter;
+            final TypeConverter direct = converters.get(type);
+            if (direct != null) {
+                converter = direct;
+            } else if (type.isArray()) {
+                converter = ARRAY_CONVERTER;
+            } else {
+                converter = findParentConverter(type);
+            }
+            resolved.putIfAbsent(type, converter);
+            return converter;
+        }
+
+        private TypeConverter findParentConverter(final Class<?> type) {
+            Class<?> current = type;
+            while (current != null) {
+                final TypeConverter converter = converters.get(current);
+                if (converter != null) {
+                    return converter;
+                }
+                for (final Class<?> itf : current.getInterfaces()) {
+                    final TypeConverter itfConverter = findParentConverter(itf);
+                    if (itfConverter != NO_CONVERTER) {
+                        return itfConverter;
+                    }
+                }
+                current = current.getSuperclass();
+            }
+            return NO_CONVERTER;
+        }
+    }
+
+    private static class ConversionKey {
+        private final Type type;
+        private final String value;
+        private final int hash;
+
+        private ConversionKey(final Type type, final String value) {
+            this.type = type;
+            this.value = value;
+            this.hash = 31 * type.hashCode() + value.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!ConversionKey.class.isInstance(o)) {
+                return false;
+            }
+
+            final ConversionKey that = ConversionKey.class.cast(o);
+            return type.equals(that.type) && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // reads are lock free, eviction gives a second chance to the values read since the hand passed them (clock)
+    private static class ConversionCache {
+        private final ConcurrentMap<ConversionKey, CachedValue> values = new ConcurrentHashMap<ConversionKey, CachedValue>();
+        private final AtomicBoolean evicting = new AtomicBoolean();
+        private final int maxSize;
+        private Iterator<CachedValue> hand; // guarded by evicting
+
+        private ConversionCache(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private Object get(final ConversionKey key) {
+            final CachedValue cached = values.get(key);
+            if (cached == null) {
+                return null;
+            }
+            cached.used = true;
+            return cached.value;
+        }
+
+        private void put(final ConversionKey key, final Object value) {
+            values.putIfAbsent(key, new CachedValue(value));
+            if (values.size() > maxSize) {
+                evict();
+            }
+        }
+
+        private void evict() {
+            if (!evicting.compareAndSet(false, true)) {
+                return; // another thread is already evicting, the size is approximate anyway
+            }
+            try {
+                int excess = values.size() - maxSize;
+                int steps = 2 * (maxSize + excess); // a full turn unflags every value, the next one evicts
+                while (excess > 0 && steps-- > 0) {
+                    if (hand == null || !hand.hasNext()) {
+                        hand = values.values().iterator();
+                        if (!hand.hasNext()) {
+                            return;
+                        }
+                    }
+                    final CachedValue cached = hand.next();
+                    if (cached.used) {
+                        cached.used = false;
+                    } else {
+                        hand.remove();
+                        excess--;
+                    }
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    private static class CachedValue {
+        private final Object value;
+        private volatile boolean used = true; // survives the next pass of the hand
+
+        private CachedValue(final Object value) {
+            this.value = value;
         }
-        return Object[].class.cast(array);
     }
 }
@@ -0,0 +1,48 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+/**
+ * Comma separated values walked in place, no regex and no intermediate String[].
+ * Same tokens as value.split(","): trailing empty tokens are ignored.
+ */
+final class Csv {
+    private static final char SEPARATOR = ',';
+
+    private Csv() {
+        // no-op
+    }
+
+    /**
+     * @param value the raw value
+     * @return the index after the last token
+     */
+    static int end(final String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+        return end;
+    }
+
+    static int count(final String value, final int end) {
+        if (end == 0) {
+            return value.isEmpty() ? 1 : 0;
+        }
+
+        int count = 1;
+        for (int i = value.indexOf(SEPARATOR); i >= 0 && i < end; i = value.indexOf(SEPARATOR, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param value the raw value
+     * @param start first index of the token
+     * @param end the index returned by {@link #end(String)}
+     * @return the index after the token
+     */
+    static int next(final String value, final int start, final int end) {
+        final int separator = value.indexOf(SEPARATOR, start);
+        return separator < 0 || separator > end ? end : separator;
+    }
+}
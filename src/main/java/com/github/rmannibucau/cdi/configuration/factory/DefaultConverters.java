@@ -0,0 +1,454 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
+
+import javax.xml.namespace.QName;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+final class DefaultConverters {
+    private DefaultConverters() {
+        // no-op
+    }
+
+    static Map<Class<?>, TypeConverter> converters() {
+        final Map<Class<?>, TypeConverter> converters = new HashMap<Class<?>, TypeConverter>();
+        for (final TypeConverter converter : new TypeConverter[] {
+            new IntegerConverter(Integer.class), new IntegerConverter(Integer.TYPE),
+            new LongConverter(Long.class), new LongConverter(Long.TYPE),
+            new ShortConverter(Short.class), new ShortConverter(Short.TYPE),
+            new ByteConverter(Byte.class), new ByteConverter(Byte.TYPE),
+            new BooleanConverter(Boolean.class), new BooleanConverter(Boolean.TYPE),
+            new DoubleConverter(Double.class), new DoubleConverter(Double.TYPE),
+            new FloatConverter(Float.class), new FloatConverter(Float.TYPE),
+            new CharacterConverter(Character.class), new CharacterConverter(Character.TYPE),
+            new BigDecimalConverter(), new BigIntegerConverter(),
+            new URLConverter(), new URIConverter(), new QNameConverter(), new ClassConverter(),
+            new EnumConverter(), new CharsetConverter(), new PathConverter(), new PatternConverter(),
+            new InetSocketAddressConverter(),
+            new ListConverter(), new SetConverter(), new MapConverter()
+        }) {
+            converters.put(converter.type(), converter);
+        }
+
+        final TypeConverter duration = DurationConverter.newInstance();
+        if (duration != null) {
+            converters.put(duration.type(), duration);
+        }
+        return converters;
+    }
+
+    private static Class<?> typeArgument(final Type type, final int index, final Class<?> defaultType) {
+        if (!ParameterizedType.class.isInstance(type)) {
+            return defaultType;
+        }
+
+        final Type[] arguments = ParameterizedType.class.cast(type).getActualTypeArguments();
+        if (arguments.length <= index || WildcardType.class.isInstance(arguments[index])) {
+            return Object.class;
+        }
+        return (Class<?>) arguments[index];
+    }
+
+    private abstract static class PrimitiveConverter implements TypeConverter {
+        private final Class<?> type;
+
+        protected PrimitiveConverter(final Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Class<?> type() {
+            return type;
+        }
+    }
+
+    private static class IntegerConverter extends PrimitiveConverter {
+        private IntegerConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Integer.parseInt(value);
+        }
+    }
+
+    private static class LongConverter extends PrimitiveConverter {
+        private LongConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Long.parseLong(value);
+        }
+    }
+
+    private static class ShortConverter extends PrimitiveConverter {
+        private ShortConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Short.parseShort(value);
+        }
+    }
+
+    private static class ByteConverter extends PrimitiveConverter {
+        private ByteConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Byte.parseByte(value);
+        }
+    }
+
+    private static class BooleanConverter extends PrimitiveConverter {
+        private BooleanConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    private static class DoubleConverter extends PrimitiveConverter {
+        private DoubleConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Double.parseDouble(value);
+        }
+    }
+
+    private static class FloatConverter extends PrimitiveConverter {
+        private FloatConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Float.parseFloat(value);
+        }
+    }
+
+    private static class CharacterConverter extends PrimitiveConverter {
+        private CharacterConverter(final Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            if (value.length() != 1) {
+                throw new ConfigurationException("'" + value + "' is not a character");
+            }
+            return value.charAt(0);
+        }
+    }
+
+    private static class BigDecimalConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return BigDecimal.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return new BigDecimal(value.trim());
+        }
+    }
+
+    private static class BigIntegerConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return BigInteger.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return new BigInteger(value.trim());
+        }
+    }
+
+    private static class URLConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return URL.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            try {
+                return new URL(value);
+            } catch (final MalformedURLException e) {
+                throw new ConfigurationException(e);
+            }
+        }
+    }
+
+    private static class URIConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return URI.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            try {
+                return new URL(value).toURI();
+            } catch (final Exception e) {
+                throw new ConfigurationException(e);
+            }
+        }
+    }
+
+    private static class QNameConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return QName.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            final int endIdx = value.indexOf("}");
+            if (value.startsWith("{") && endIdx > 0) {
+                return new QName(value.substring(1, endIdx), value.substring(endIdx + 1));
+            }
+            return new QName(value);
+        }
+    }
+
+    private static class ClassConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Class.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            try {
+                return ClassLoaders.tccl().loadClass(value);
+            } catch (final ClassNotFoundException e) {
+                throw new ConfigurationException(e);
+            }
+        }
+    }
+
+    private static class EnumConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Enum.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            final Class<?> enumType = Class.class.cast(type);
+            final Object[] constants = enumType.getEnumConstants();
+            if (constants != null) {
+                final String name = value.trim();
+                for (final Object constant : constants) {
+                    if (Enum.class.cast(constant).name().equals(name)) {
+                        return constant;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("No enum constant " + enumType.getName() + "." + value.trim());
+        }
+    }
+
+    private static class CharsetConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Charset.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Charset.forName(value.trim());
+        }
+    }
+
+    private static class PathConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Path.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Paths.get(value);
+        }
+    }
+
+    private static class PatternConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Pattern.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Pattern.compile(value);
+        }
+    }
+
+    private static class InetSocketAddressConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return InetSocketAddress.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) { // host:port or [ipv6]:port
+            final String address = value.trim();
+            final int portIdx = address.lastIndexOf(':');
+            if (portIdx <= 0 || portIdx == address.length() - 1) {
+                throw new ConfigurationException("'" + value + "' is not an address (host:port)");
+            }
+
+            String host = address.substring(0, portIdx);
+            if (host.startsWith("[") && host.endsWith("]")) {
+                host = host.substring(1, host.length() - 1);
+            }
+            return new InetSocketAddress(host, Integer.parseInt(address.substring(portIdx + 1)));
+        }
+    }
+
+    // java.time is not available on Java 7 so we only register it when present
+    private static class DurationConverter implements TypeConverter {
+        private final Class<?> type;
+        private final Method parse;
+        private final Method ofMillis;
+
+        private DurationConverter(final Class<?> type) throws NoSuchMethodException {
+            this.type = type;
+            this.parse = type.getMethod("parse", CharSequence.class);
+            this.ofMillis = type.getMethod("ofMillis", long.class);
+        }
+
+        private static TypeConverter newInstance() {
+            try {
+                return new DurationConverter(Class.forName("java.time.Duration"));
+            } catch (final Exception e) {
+                return null;
+            }
+        }
+
+        @Override
+        public Class<?> type() {
+            return type;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) { // ISO-8601 (PT10S) or shortcuts (10s, 500ms...)
+            final String duration = value.trim();
+            try {
+                if (duration.startsWith("P") || duration.startsWith("p") || duration.startsWith("-P")) {
+                    return parse.invoke(null, duration);
+                }
+                return ofMillis.invoke(null, toMillis(duration));
+            } catch (final ConfigurationException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new ConfigurationException(e);
+            }
+        }
+
+        private static long toMillis(final String duration) {
+            int unitIdx = 0;
+            while (unitIdx < duration.length() && (Character.isDigit(duration.charAt(unitIdx)) || duration.charAt(unitIdx) == '-')) {
+                unitIdx++;
+            }
+            if (unitIdx == 0) {
+                throw new ConfigurationException("'" + duration + "' is not a duration");
+            }
+
+            final long amount = Long.parseLong(duration.substring(0, unitIdx));
+            final String unit = duration.substring(unitIdx).trim().toLowerCase();
+            if (unit.isEmpty() || "ms".equals(unit)) {
+                return amount;
+            }
+            if ("s".equals(unit)) {
+                return TimeUnit.SECONDS.toMillis(amount);
+            }
+            if ("m".equals(unit) || "min".equals(unit)) {
+                return TimeUnit.MINUTES.toMillis(amount);
+            }
+            if ("h".equals(unit)) {
+                return TimeUnit.HOURS.toMillis(amount);
+            }
+            if ("d".equals(unit)) {
+                return TimeUnit.DAYS.toMillis(amount);
+            }
+            throw new ConfigurationException("Unknown duration unit '" + unit + "'");
+        }
+    }
+
+    private static class ListConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return List.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            final List<Object> list = new ArrayList<Object>();
+            Converter.addAll(list, typeArgument(type, 0, String.class), value);
+            return list;
+        }
+    }
+
+    private static class SetConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Set.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            final Set<Object> set = new HashSet<Object>();
+            Converter.addAll(set, typeArgument(type, 0, String.class), value);
+            return set;
+        }
+    }
+
+    private static class MapConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Map.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            return Converter.toMap(value, typeArgument(type, 0, String.class), typeArgument(type, 1, String.class));
+        }
+    }
+}
@@ -4,22 +4,22 @@ import com.github.rmannibucau.cdi.configuration.ConfigurationException;
 import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
 import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
 import org.apache.deltaspike.core.api.config.ConfigResolver;
-import org.apache.deltaspike.core.api.provider.BeanProvider;
+import org.apache.deltaspike.core.api.provider.BeanManagerProvider;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
-import java.beans.Introspector;
-import java.lang.annotation.Annotation;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 import static com.github.rmannibucau.cdi.configuration.factory.Converter.convertTo;
@@ -28,59 +28,92 @@ public class ObjectFactory<T> {
     private static final Logger LOGGER = Logger.getLogger(ObjectFactory.class.getName());
 
     private static final boolean HOOK_ACTIVATED = "true".equalsIgnoreCase(ConfigResolver.getPropertyValue("cdi.config.hooks", "false"));
+    private static final boolean METHOD_HANDLE_SETTERS = "method-handle".equalsIgnoreCase(ConfigResolver.getPropertyValue("cdi.config.setters", "reflection"));
+
+    private static final Invoker[] NO_INVOKER = new Invoker[0];
 
     private final ConfigBean model;
     private final Factory<T> factory;
-    private final Collection<Method> postConstructs = new CopyOnWriteArrayList<Method>();
-    private final Collection<Method> preDestroys = new CopyOnWriteArrayList<Method>();
+    private final Invoker[] postConstructs;
+    private final Invoker[] preDestroys;
 
     public ObjectFactory(final ConfigBean bean) {
+        this(bean, null);
+    }
+
+    /**
+     * @param bean the bean model
+     * @param beanClass the already loaded bean class if known (avoids to load it again), null otherwise
+     */
+    public ObjectFactory(final ConfigBean bean, final Class<?> beanClass) {
         model = bean;
-        factory = findFactory();
+        factory = findFactory(beanClass != null && beanClass.getName().equals(bean.getClassname()) ? beanClass : null);
 
-        final Class<?> clazz = factory.beanClass();
-        for (final Method m : new Method[] { find(PostConstruct.class, clazz), find(bean.getInitMethod(), clazz) }) {
-            if (m != null) {
-                postConstructs.add(m);
-            }
-        }
-        for (final Method m : new Method[] { find(PreDestroy.class, clazz), find(bean.getDestroyMethod(), clazz) }) {
-            if (m != null) {
-                preDestroys.add(m);
-            }
-        }
+        // lookups only, the hierarchy is scanned once per class by ClassMetadata
+        final ClassMetadata metadata = ClassMetadata.of(factory.beanClass());
+        postConstructs = invokers(HOOK_ACTIVATED ? metadata.postConstruct() : null, metadata.method(bean.getInitMethod()));
+        preDestroys = invokers(HOOK_ACTIVATED ? metadata.preDestroy() : null, metadata.method(bean.getDestroyMethod()));
     }
 
+    /**
+     * Note: a factory instance (factory-method with a destroy-method) is not destroyed by {@link #destroy(Object)},
+     * ContextualFactory keeps it with the creational context of the instance to do it.
+     *
+     * @return a new initialized instance.
+     */
     public T create() {
-        final T instance = factory.create();
-        for (final Method postConstruct : postConstructs) {
+        final T instance = newInstance(null);
+        postConstruct(instance);
+        return instance;
+    }
+
+    // create() split in two steps for metrics, destroyState[0] receives what destroy() needs if not null
+    T newInstance(final Object[] destroyState) {
+        return factory.create(destroyState);
+    }
+
+    void postConstruct(final T instance) {
+        for (final Invoker postConstruct : postConstructs) {
             try {
                 postConstruct.invoke(instance);
             } catch (final Exception e) {
                 throw new ConfigurationException(e);
             }
         }
-        return instance;
+    }
+
+    // true if destroy() does something so the creator of an instance must be kept after a reload
+    boolean hasDestroyCallback() {
+        return preDestroys.length > 0 || factory.hasDestroyState();
+    }
+
+    // true if the creation produces a state (factory instance) destroy() needs
+    boolean hasDestroyState() {
+        return factory.hasDestroyState();
     }
 
     public void destroy(final T instance) {
-        for (final Method preDestroy : preDestroys) {
+        destroy(instance, null);
+    }
+
+    void destroy(final T instance, final Object destroyState) {
+        for (final Invoker preDestroy : preDestroys) {
             try {
                 preDestroy.invoke(instance);
             } catch (final Exception e) {
                 throw new ConfigurationException(e);
             }
         }
-        factory.destroy(instance);
+        factory.destroy(instance, destroyState);
     }
 
-    private Factory<T> findFactory() {
+    private Factory<T> findFactory(final Class<?> beanClass) {
         try {
             if (model.getFactoryClass() == null && !model.isConstructor()) {
-                return new NewFactory<T>(model);
+                return new NewFactory<T>(model, beanClass);
             }
             if (model.isConstructor()) {
-                return new ConstructorFactory<T>(model);
+                return new ConstructorFactory<T>(model, beanClass);
             }
 
             final Class<?> factoryClass = ClassLoaders.tccl().loadClass(model.getFactoryClass());
@@ -89,11 +122,21 @@ public class ObjectFactory<T> {
                 method.setAccessible(true);
             }
             return new MethodFactory<T>(model, Modifier.isStatic(method.getModifiers()), method);
+        } catch (final ConfigurationException e) { // already explicit
+            throw e;
         } catch (final Exception e) {
             throw new ConfigurationException(e);
         }
     }
 
+    private static Class<?> loadClass(final String name) {
+        try {
+            return ClassLoaders.tccl().loadClass(name);
+        } catch (final ClassNotFoundException e) {
+            throw new ConfigurationException(e);
+        }
+    }
+
     protected static interface Setter {
         Type type();
         void set(final Object mainInstance, final Object value) throws Exception;
@@ -104,6 +147,9 @@ public class ObjectFactory<T> {
 
         public FieldSetter(final Field field) {
             this.field = field;
+            if (!field.isAccessible()) {
+                field.setAccessible(true);
+            }
         }
 
         @Override
@@ -113,9 +159,6 @@ public class ObjectFactory<T> {
 
         @Override
         public void set(final Object mainInstance, final Object value) throws Exception {
-            if (!field.isAccessible()) {
-                field.setAccessible(true);
-            }
             field.set(mainInstance, value);
         }
     }
@@ -125,6 +168,9 @@ public class ObjectFactory<T> {
 
         public MethodSetter(final Method method) {
             this.method = method;
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
         }
 
         @Override
@@ -134,166 +180,519 @@ public class ObjectFactory<T> {
 
         @Override
         public void set(final Object mainInstance, final Object value) throws Exception {
+            method.invoke(mainInstance, value);
+        }
+    }
+
+    protected static class MethodHandleSetter implements Setter {
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final Type type;
+        private final MethodHandle handle;
+
+        public MethodHandleSetter(final Type type, final MethodHandle handle) {
+            this.type = type;
+            this.handle = handle.asType(SETTER_TYPE);
+        }
+
+        @Override
+        public Type type() {
+            return type;
+        }
+
+        @Override
+        public void set(final Object mainInstance, final Object value) throws Exception {
+            try {
+                handle.invokeExact(mainInstance, value);
+            } catch (final Exception e) {
+                throw e;
+            } catch (final Error e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    protected static Setter newSetter(final Field field) {
+        final FieldSetter reflectionSetter = new FieldSetter(field); // makes the field accessible
+        if (!METHOD_HANDLE_SETTERS) {
+            return reflectionSetter;
+        }
+        try {
+            return new MethodHandleSetter(reflectionSetter.type(), MethodHandles.lookup().unreflectSetter(field));
+        } catch (final IllegalAccessException e) { // final fields for instance
+            return reflectionSetter;
+        }
+    }
+
+    protected static Setter newSetter(final Method method) {
+        final MethodSetter reflectionSetter = new MethodSetter(method);
+        if (!METHOD_HANDLE_SETTERS) {
+            return reflectionSetter;
+        }
+        try {
+            return new MethodHandleSetter(reflectionSetter.type(), MethodHandles.lookup().unreflect(method));
+        } catch (final IllegalAccessException e) {
+            return reflectionSetter;
+        }
+    }
+
+    protected static interface Invoker {
+        void invoke(final Object instance) throws Exception;
+    }
+
+    protected static class MethodInvoker implements Invoker {
+        private final Method method;
+
+        public MethodInvoker(final Method method) {
+            this.method = method;
             if (!method.isAccessible()) {
                 method.setAccessible(true);
             }
-            method.invoke(mainInstance, value);
+        }
+
+        @Override
+        public void invoke(final Object instance) throws Exception {
+            method.invoke(instance);
+        }
+    }
+
+    protected static class MethodHandleInvoker implements Invoker {
+        private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class);
+
+        private final MethodHandle handle;
+
+        public MethodHandleInvoker(final MethodHandle handle) {
+            this.handle = handle.asType(INVOKER_TYPE);
+        }
+
+        @Override
+        public void invoke(final Object instance) throws Exception {
+            try {
+                handle.invokeExact(instance);
+            } catch (final Exception e) {
+                throw e;
+            } catch (final Error e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new InvocationTargetException(t);
+            }
         }
     }
 
+    protected static Invoker newInvoker(final Method method) {
+        final MethodInvoker reflectionInvoker = new MethodInvoker(method); // makes the method accessible
+        if (!METHOD_HANDLE_SETTERS) {
+            return reflectionInvoker;
+        }
+        try {
+            return new MethodHandleInvoker(MethodHandles.lookup().unreflect(method));
+        } catch (final IllegalAccessException e) {
+            return reflectionInvoker;
+        }
+    }
+
+    private static Invoker[] invokers(final Method annotated, final Method named) {
+        if (annotated == null && named == null) {
+            return NO_INVOKER;
+        }
+        if (annotated == null || annotated.equals(named)) {
+            return new Invoker[] { newInvoker(named) };
+        }
+        if (named == null) {
+            return new Invoker[] { newInvoker(annotated) };
+        }
+        return new Invoker[] { newInvoker(annotated), newInvoker(named) };
+    }
+
     protected static interface Factory<T> {
-        T create();
-        void destroy(T instance);
+        T create(Object[] destroyState); // destroyState is null if the caller doesn't keep it
+        void destroy(T instance, Object destroyState);
+        boolean hasDestroyState();
         Class<?> beanClass();
     }
 
     protected static class ConstructorFactory<T> implements Factory<T> {
         private final Constructor<T> constructor;
-        private final ConfigBean model;
+        private final Value[] arguments; // resolved once, create() only evaluates them
 
         public ConstructorFactory(final ConfigBean bean) {
-            final int paramNumber = bean.getDirectAttributes().size() + bean.getRefAttributes().size();
+            this(bean, null);
+        }
 
-            final Class<?> clazz;
-            try {
-                clazz = ClassLoaders.tccl().loadClass(bean.getClassname());
-            } catch (final ClassNotFoundException e) {
-                throw new ConfigurationException(e);
+        public ConstructorFactory(final ConfigBean bean, final Class<?> beanClass) {
+            final Class<?> clazz = beanClass != null ? beanClass : loadClass(bean.getClassname());
+
+            final List<String> attributes = new ArrayList<String>(bean.getAttributeOrder());
+            final List<Candidate> candidates = new ArrayList<Candidate>(2);
+            RuntimeException conversionError = null;
+            for (final Constructor<?> c : ClassMetadata.of(clazz).constructors()) {
+                if (c.getParameterTypes().length != attributes.size()) {
+                    continue;
+                }
+                try {
+                    final Value[] values = arguments(bean, attributes, c);
+                    if (values != null) {
+                        candidates.add(new Candidate(c, values));
+                    }
+                } catch (final RuntimeException e) { // not the right overload or a real conversion issue
+                    if (conversionError == null) {
+                        conversionError = e;
+                    }
+                }
             }
 
-            Constructor<?> found = null;
-            for (final Constructor<?> c : clazz.getDeclaredConstructors()) {
-                if (c.getParameterTypes().length == paramNumber) {
-                    found = c;
-                    break;
+            if (candidates.isEmpty()) {
+                final String message = "No constructor found matching configuration for " + bean.getName();
+                if (conversionError != null) {
+                    throw new ConfigurationException(message, conversionError);
                 }
+                throw new ConfigurationException(message);
             }
 
-            if (found == null) {
-                throw new ConfigurationException("No constructor found matching configuration for " + bean.getName());
+            final Candidate selected = mostSpecific(bean, candidates);
+            final Constructor<?> found = selected.constructor;
+            if (!found.isAccessible()) {
+                found.setAccessible(true);
             }
 
             constructor = (Constructor<T>) found;
-            model = bean;
+            arguments = selected.values;
         }
 
         @Override
-        public T create() {
-            final Class<?>[] parameterTypes = constructor.getParameterTypes();
-            final Object[] params = new Object[parameterTypes.length];
-            int i = 0;
-            for (final String attr : model.getAttributeOrder()) {
-                params[i] = findAttribute(parameterTypes[i], attr);
-                i++;
+        public T create(final Object[] destroyState) {
+            final Object[] params = new Object[arguments.length];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = arguments[i].get();
             }
             try {
-                return (T) constructor.newInstance(params);
+                return constructor.newInstance(params);
             } catch (final Exception e) {
                 throw new ConfigurationException(e);
             }
         }
 
         @Override
-        public void destroy(final T instance) {
+        public void destroy(final T instance, final Object destroyState) {
             // no-op
         }
 
+        @Override
+        public boolean hasDestroyState() {
+            return false;
+        }
+
         @Override
         public Class<?> beanClass() {
             return constructor.getDeclaringClass();
         }
 
-        private Object findAttribute(final Class<?> clazz, final String attr) {
-            final String value = model.getDirectAttributes().get(attr);
-            if (value != null) {
-                return convertTo(clazz, value);
+        // like javac: the candidate whose parameters are all at least as specific as the other ones, fails on ties
+        private static Candidate mostSpecific(final ConfigBean bean, final List<Candidate> candidates) {
+            if (candidates.size() == 1) {
+                return candidates.get(0);
             }
 
-            final String reference = model.getRefAttributes().get(attr);
-            return BeanProvider.getContextualReference(reference);
+            final List<Candidate> best = new ArrayList<Candidate>(candidates.size());
+            for (final Candidate candidate : candidates) {
+                boolean dominated = false;
+                for (final Candidate other : candidates) {
+                    if (other != candidate && other.isMoreSpecificThan(candidate)) {
+                        dominated = true;
+                        break;
+                    }
+                }
+                if (!dominated) {
+                    best.add(candidate);
+                }
+            }
+            if (best.size() != 1) {
+                final StringBuilder constructors = new StringBuilder();
+                for (final Candidate candidate : best) {
+                    constructors.append("\n  ").append(candidate.constructor.toGenericString());
+                }
+                throw new ConfigurationException("Ambiguous constructors for " + bean.getName() + ":" + constructors);
+            }
+            return best.get(0);
+        }
+
+        // null if the constructor can't take the configured values, conversion errors are propagated
+        private static Value[] arguments(final ConfigBean bean, final List<String> attributes, final Constructor<?> constructor) {
+            final Class<?>[] rawTypes = constructor.getParameterTypes();
+            final Type[] genericTypes = constructor.getGenericParameterTypes();
+            final Type[] types = genericTypes.length == rawTypes.length ? genericTypes : rawTypes; // inner classes
+
+            final Value[] values = new Value[types.length];
+            for (int i = 0; i < types.length; i++) {
+                final String attribute = attributes.get(i);
+
+                final String value = bean.getDirectAttributes().get(attribute);
+                if (value == null) {
+                    final String reference = bean.getRefAttributes().get(attribute);
+                    if (reference == null || rawTypes[i].isPrimitive()) {
+                        return null;
+                    }
+                    values[i] = new ReferenceValue(reference);
+                } else if (!rawTypes[i].isPrimitive() && Converter.isReference(value)) { // resolved at runtime, can't be checked there
+                    values[i] = new ConvertedValue(types[i], value);
+                } else if (Converter.isInterpolated(value)) { // only known at creation, converted there
+                    values[i] = new ConvertedValue(types[i], value);
+                } else {
+                    final Object converted = convertTo(types[i], value);
+                    values[i] = Converter.isConstant(types[i], value) ? new ConstantValue(converted) : new ConvertedValue(types[i], value);
+                }
+            }
+            return values;
         }
     }
 
-    protected static class NewFactory<T> implements Factory<T> {
-        private final Class<T> clazz;
-        private final ConfigBean model;
-        private final Map<String, Setter> members;
+    private static final class Candidate {
+        private final Constructor<?> constructor;
+        private final Class<?>[] types;
+        private final Value[] values;
 
-        public NewFactory(final ConfigBean model) {
-            this.model = model;
-            try {
-                this.clazz = (Class<T>) ClassLoaders.tccl().loadClass(model.getClassname());
-            } catch (final ClassNotFoundException e) {
-                throw new ConfigurationException(e);
+        private Candidate(final Constructor<?> constructor, final Value[] values) {
+            this.constructor = constructor;
+            this.types = constructor.getParameterTypes();
+            this.values = values;
+        }
+
+        private boolean isMoreSpecificThan(final Candidate other) {
+            boolean strict = false;
+            for (int i = 0; i < types.length; i++) {
+                if (!isAtLeastAsSpecific(types[i], other.types[i])) {
+                    return false;
+                }
+                strict |= !isAtLeastAsSpecific(other.types[i], types[i]);
+            }
+            return strict;
+        }
+
+        private static boolean isAtLeastAsSpecific(final Class<?> type, final Class<?> other) {
+            return wrap(other).isAssignableFrom(wrap(type)) || rank(type) > rank(other);
+        }
+
+        // Object accepts anything, String any text, other types need a successful conversion
+        private static int rank(final Class<?> type) {
+            if (Object.class == type) {
+                return 0;
+            }
+            if (String.class == type || CharSequence.class == type) {
+                return 1;
+            }
+            return 2;
+        }
+
+        private static Class<?> wrap(final Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            }
+            if (int.class == type) {
+                return Integer.class;
             }
-            this.members = mapMembers(clazz);
+            if (long.class == type) {
+                return Long.class;
+            }
+            if (boolean.class == type) {
+                return Boolean.class;
+            }
+            if (double.class == type) {
+                return Double.class;
+            }
+            if (float.class == type) {
+                return Float.class;
+            }
+            if (short.class == type) {
+                return Short.class;
+            }
+            if (byte.class == type) {
+                return Byte.class;
+            }
+            return Character.class;
+        }
+    }
+
+    protected static interface Value {
+        Object get();
+    }
+
+    protected static class ConstantValue implements Value {
+        private final Object value;
+
+        public ConstantValue(final Object value) {
+            this.value = value;
         }
 
         @Override
-        public T create() {
-            try {
-                final T t = clazz.newInstance();
+        public Object get() {
+            return value;
+        }
+    }
 
-                for (final Map.Entry<String, String> attribute : model.getDirectAttributes().entrySet()) {
-                    final Setter field = members.get(attribute.getKey());
-                    if (field != null) {
-                        final Object value = convertTo(field.type(), attribute.getValue());
-                        field.set(t, value);
-                    } else if (SetterFallback.class.isInstance(t)) {
-                        SetterFallback.class.cast(t).set(attribute.getKey(), attribute.getValue());
-                    } else {
-                        LOGGER.warning("Can't find field " + attribute.getKey());
-                    }
-                }
+    protected static class ConvertedValue implements Value {
+        private final Type type;
+        private final String rawValue;
 
-                for (final Map.Entry<String, String> attribute : model.getRefAttributes().entrySet()) {
-                    final Setter field = members.get(attribute.getKey());
-                    if (field != null) {
-                        field.set(t, BeanProvider.getContextualReference(attribute.getValue()));
-                    } else {
-                        LOGGER.warning("Can't find field " + attribute.getKey());
-                    }
+        public ConvertedValue(final Type type, final String rawValue) {
+            this.type = type;
+            this.rawValue = rawValue;
+        }
+
+        @Override
+        public Object get() {
+            return convertTo(type, rawValue);
+        }
+    }
+
+    protected static class ReferenceValue implements Value {
+        private final String name;
+
+        // resolved on first use since beans are not all there when factories are built
+        private volatile BeanManager beanManager;
+        private volatile Bean<?> bean;
+        private volatile Object proxy; // only for normal scoped beans, the client proxy is stable
+
+        public ReferenceValue(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object get() {
+            final Object cached = proxy;
+            if (cached != null) {
+                return cached;
+            }
+
+            Bean<?> resolved = bean;
+            if (resolved == null) {
+                final BeanManager bm = BeanManagerProvider.getInstance().getBeanManager();
+                resolved = bm.resolve(bm.getBeans(name));
+                if (resolved == null) {
+                    throw new ConfigurationException("No bean named " + name);
                 }
 
-                return t;
-            } catch (final Exception e) {
-                throw new ConfigurationException(e);
+                beanManager = bm;
+                bean = resolved;
+            }
+
+            final BeanManager bm = beanManager;
+            final Object reference = bm.getReference(resolved, Object.class, bm.createCreationalContext(resolved));
+            if (bm.isNormalScope(resolved.getScope())) {
+                proxy = reference;
             }
+            return reference;
+        }
+    }
+
+    protected static Value toValue(final Type type, final String rawValue) {
+        if (Converter.isConstant(type, rawValue)) {
+            return new ConstantValue(convertTo(type, rawValue));
+        }
+        return new ConvertedValue(type, rawValue);
+    }
+
+    protected static interface Step {
+        void apply(Object instance) throws Exception;
+    }
+
+    protected static class SetterStep implements Step {
+        private final Setter setter;
+        private final Value value;
+
+        public SetterStep(final Setter setter, final Value value) {
+            this.setter = setter;
+            this.value = value;
         }
 
         @Override
-        public void destroy(final T instance) {
-            // no-op
+        public void apply(final Object instance) throws Exception {
+            setter.set(instance, value.get());
+        }
+    }
+
+    protected static class FallbackStep implements Step {
+        private final String key;
+        private final String value;
+
+        public FallbackStep(final String key, final String value) {
+            this.key = key;
+            this.value = value;
         }
 
         @Override
-        public Class<?> beanClass() {
-            return clazz;
+        public void apply(final Object instance) throws Exception {
+            SetterFallback.class.cast(instance).set(key, value);
         }
+    }
 
-        private Map<String, Setter> mapMembers(final Class<T> target) {
-            final Map<String, Setter> members = new HashMap<String, Setter>();
-            Class<?> current = target;
-            do {
-                for (final Method method : current.getDeclaredMethods()) {
-                    final String name = method.getName();
-                    if (name.length() > 3 && name.startsWith("set") && method.getParameterTypes().length == 1) {
-                        members.put(Introspector.decapitalize(name.substring(3)), new MethodSetter(method));
-                    }
+    protected static class NewFactory<T> implements Factory<T> {
+        private final Class<T> clazz;
+        private final Step[] steps; // compiled once, create() only replays it
+
+        public NewFactory(final ConfigBean model) {
+            this(model, null);
+        }
+
+        public NewFactory(final ConfigBean model, final Class<?> beanClass) {
+            this.clazz = (Class<T>) (beanClass != null ? beanClass : loadClass(model.getClassname()));
+            this.steps = compile(model, ClassMetadata.of(clazz).setters());
+        }
+
+        @Override
+        public T create(final Object[] destroyState) {
+            try {
+                final T t = clazz.newInstance();
+                for (final Step step : steps) {
+                    step.apply(t);
                 }
+                return t;
+            } catch (final Exception e) {
+                throw new ConfigurationException(e);
+            }
+        }
 
-                for (final Field field : current.getDeclaredFields()) {
-                    final String name = field.getName();
-                    if (members.containsKey(name)) {
-                        continue;
-                    }
+        private Step[] compile(final ConfigBean model, final Map<String, Setter> members) {
+            final boolean fallback = SetterFallback.class.isAssignableFrom(clazz);
+            final List<Step> plan = new ArrayList<Step>(model.getDirectAttributes().size() + model.getRefAttributes().size());
+
+            for (final Map.Entry<String, String> attribute : model.getDirectAttributes().entrySet()) {
+                final Setter field = members.get(attribute.getKey());
+                if (field != null) {
+                    plan.add(new SetterStep(field, toValue(field.type(), attribute.getValue())));
+                } else if (fallback) {
+                    plan.add(new FallbackStep(attribute.getKey(), attribute.getValue()));
+                } else {
+                    LOGGER.warning("Can't find field " + attribute.getKey());
+                }
+            }
 
-                    members.put(name, new FieldSetter(field));
+            for (final Map.Entry<String, String> attribute : model.getRefAttributes().entrySet()) {
+                final Setter field = members.get(attribute.getKey());
+                if (field != null) {
+                    plan.add(new SetterStep(field, new ReferenceValue(attribute.getValue())));
+                } else {
+                    LOGGER.warning("Can't find field " + attribute.getKey());
                 }
+            }
+
+            return plan.toArray(new Step[plan.size()]);
+        }
+
+        @Override
+        public void destroy(final T instance, final Object destroyState) {
+            // no-op
+        }
 
-                current = current.getSuperclass();
-            } while (current != null && !Object.class.equals(current));
-            return members;
+        @Override
+        public boolean hasDestroyState() {
+            return false;
+        }
+
+        @Override
+        public Class<?> beanClass() {
+            return clazz;
         }
     }
 
@@ -301,7 +700,7 @@ public class ObjectFactory<T> {
         private final boolean staticFactory;
         private final Method method;
         private final ObjectFactory<Object> delegate;
-        private final Map<Object, Object> factoryByInstance = new ConcurrentHashMap<Object, Object>();
+        private final boolean destroyFactory; // the factory instance is the destroy state of its products
 
         public MethodFactory(final ConfigBean mainBean, final boolean staticFactory, final Method method) {
             this.staticFactory = staticFactory;
@@ -310,16 +709,18 @@ public class ObjectFactory<T> {
             // reuse this as meta factory for the factory instance if needed
             if (staticFactory) {
                 this.delegate = null;
+                this.destroyFactory = false;
             } else {
                 final ConfigBean bean = new ConfigBean(null, mainBean.getFactoryClass(), null, null, null, null, mainBean.getInitMethod(), mainBean.getDestroyMethod(), false);
                 bean.getDirectAttributes().putAll(mainBean.getDirectAttributes());
                 bean.getRefAttributes().putAll(mainBean.getRefAttributes());
                 this.delegate = new ObjectFactory<Object>(bean);
+                this.destroyFactory = delegate.hasDestroyCallback();
             }
         }
 
         @Override
-        public T create() {
+        public T create(final Object[] destroyState) {
             try {
                 if (staticFactory) {
                     return (T) method.invoke(null);
@@ -327,7 +728,9 @@ public class ObjectFactory<T> {
 
                 final Object factoryInstance = delegate.create();
                 final T instance = (T) method.invoke(factoryInstance);
-                factoryByInstance.put(instance, factoryInstance);
+                if (destroyFactory && destroyState != null) {
+                    destroyState[0] = factoryInstance;
+                }
                 return instance;
             } catch (final Exception e) {
                 throw new ConfigurationException(e);
@@ -335,15 +738,15 @@ public class ObjectFactory<T> {
         }
 
         @Override
-        public void destroy(final T instance) {
-            if (staticFactory || instance == null) {
-                return;
+        public void destroy(final T instance, final Object destroyState) {
+            if (destroyState != null) {
+                delegate.destroy(destroyState);
             }
+        }
 
-            final Object factory = factoryByInstance.remove(instance);
-            if (factory != null) {
-                delegate.destroy(factory);
-            }
+        @Override
+        public boolean hasDestroyState() {
+            return destroyFactory;
         }
 
         @Override
@@ -351,34 +754,4 @@ public class ObjectFactory<T> {
             return method.getReturnType();
         }
     }
-
-    private static Method find(final Class<? extends Annotation> annotation, final Class<?> clazz) {
-        if (!HOOK_ACTIVATED) {
-            return null;
-        }
-
-        Class<?> current = clazz;
-        while (current != null && !Object.class.equals(current)) {
-            for (final Method m : current.getDeclaredMethods()) {
-                if (m.getAnnotation(annotation) != null) {
-                    return m;
-                }
-            }
-            current = current.getSuperclass();
-        }
-        return null;
-    }
-
-    private static Method find(final String name, final Class<?> clazz) {
-        Class<?> current = clazz;
-        while (current != null && !Object.class.equals(current)) {
-            for (final Method m : current.getDeclaredMethods()) {
-                if (m.getName().equals(name)) {
-                    return m;
-                }
-            }
-            current = current.getSuperclass();
-        }
-        return null;
-    }
 }
@@ -0,0 +1,207 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+
+/**
+ * Converts comma separated values to primitive arrays writing directly in the array, without boxing.
+ * Spaces around numbers and booleans are ignored so tables can be written on several lines.
+ */
+final class PrimitiveArrays {
+    private PrimitiveArrays() {
+        // no-op
+    }
+
+    static Object convert(final Class<?> componentType, final String value) {
+        if (int.class == componentType) {
+            return toInts(value);
+        }
+        if (long.class == componentType) {
+            return toLongs(value);
+        }
+        if (double.class == componentType) {
+            return toDoubles(value);
+        }
+        if (byte.class == componentType) {
+            return toBytes(value);
+        }
+        if (char.class == componentType) {
+            return toChars(value);
+        }
+        if (boolean.class == componentType) {
+            return toBooleans(value);
+        }
+        if (short.class == componentType) {
+            return toShorts(value);
+        }
+        if (float.class == componentType) {
+            return toFloats(value);
+        }
+        throw new ConfigurationException("Unsupported array type " + componentType);
+    }
+
+    static int[] toInts(final String value) {
+        final int end = Csv.end(value);
+        final int[] array = new int[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            array[i] = (int) parseLong(value, start, tokenEnd, Integer.MIN_VALUE, Integer.MAX_VALUE, int.class);
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static long[] toLongs(final String value) {
+        final int end = Csv.end(value);
+        final long[] array = new long[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            array[i] = parseLong(value, start, tokenEnd, Long.MIN_VALUE, Long.MAX_VALUE, long.class);
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static short[] toShorts(final String value) {
+        final int end = Csv.end(value);
+        final short[] array = new short[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            array[i] = (short) parseLong(value, start, tokenEnd, Short.MIN_VALUE, Short.MAX_VALUE, short.class);
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static byte[] toBytes(final String value) {
+        final int end = Csv.end(value);
+        final byte[] array = new byte[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            array[i] = (byte) parseLong(value, start, tokenEnd, Byte.MIN_VALUE, Byte.MAX_VALUE, byte.class);
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static double[] toDoubles(final String value) {
+        final int end = Csv.end(value);
+        final double[] array = new double[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            final String token = value.substring(start, tokenEnd);
+            try {
+                array[i] = Double.parseDouble(token); // ignores spaces itself
+            } catch (final NumberFormatException nfe) {
+                throw invalid(token, double.class);
+            }
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static float[] toFloats(final String value) {
+        final int end = Csv.end(value);
+        final float[] array = new float[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            final String token = value.substring(start, tokenEnd);
+            try {
+                array[i] = Float.parseFloat(token);
+            } catch (final NumberFormatException nfe) {
+                throw invalid(token, float.class);
+            }
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    static char[] toChars(final String value) {
+        final int end = Csv.end(value);
+        final char[] array = new char[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            if (tokenEnd - start != 1) { // no trim, ' ' is a valid character
+                throw new ConfigurationException("'" + value.substring(start, tokenEnd) + "' is not a character");
+            }
+            array[i] = value.charAt(start);
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    // same semantic as Boolean.parseBoolean: anything but true is false
+    static boolean[] toBooleans(final String value) {
+        final int end = Csv.end(value);
+        final boolean[] array = new boolean[Csv.count(value, end)];
+        int start = 0;
+        for (int i = 0; i < array.length; i++) {
+            final int tokenEnd = Csv.next(value, start, end);
+            final int from = skipSpaces(value, start, tokenEnd);
+            final int to = trailingSpaces(value, from, tokenEnd);
+            array[i] = to - from == 4 && value.regionMatches(true, from, "true", 0, 4);
+            start = tokenEnd + 1;
+        }
+        return array;
+    }
+
+    private static long parseLong(final String value, final int start, final int end,
+                                  final long min, final long max, final Class<?> type) {
+        int i = skipSpaces(value, start, end);
+        final int last = trailingSpaces(value, i, end);
+        if (i == last) {
+            throw invalid(value.substring(start, end), type);
+        }
+
+        final boolean negative = value.charAt(i) == '-';
+        if (negative || value.charAt(i) == '+') {
+            i++;
+            if (i == last) {
+                throw invalid(value.substring(start, end), type);
+            }
+        }
+
+        // accumulated negatively to be able to represent Long.MIN_VALUE, same checks as Long.parseLong
+        final long limit = negative ? min : -max;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < last; i++) {
+            final int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0 || result < multiplyLimit) {
+                throw invalid(value.substring(start, end), type);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw invalid(value.substring(start, end), type);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static int skipSpaces(final String value, final int start, final int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trailingSpaces(final String value, final int start, final int end) {
+        int i = end;
+        while (i > start && Character.isWhitespace(value.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static ConfigurationException invalid(final String token, final Class<?> type) {
+        return new ConfigurationException("'" + token + "' is not a valid " + type.getName());
+    }
+}
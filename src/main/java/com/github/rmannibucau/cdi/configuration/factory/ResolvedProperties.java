@@ -0,0 +1,195 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
+import org.apache.deltaspike.core.api.config.ConfigResolver;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of the keys resolved through ConfigResolver by the interpolation, each lookup iterates over all ConfigSources.
+ * Activated with one of these DeltaSpike properties:
+ * <ul>
+ *     <li>cdi.config.interpolation.cache: true to keep resolved values until they are invalidated</li>
+ *     <li>cdi.config.interpolation.cache-ttl: milliseconds a resolved value is kept</li>
+ *     <li>cdi.config.interpolation.refresh-interval: milliseconds between two resolutions of the cached keys in background</li>
+ * </ul>
+ * Listeners are notified when a key resolved again (expiration, refresh) has a new value.
+ * The state is kept per application (context classloader) and dropped when it stops.
+ */
+public final class ResolvedProperties {
+    private static final Logger LOGGER = Logger.getLogger(ResolvedProperties.class.getName());
+
+    // ConfigSources, cached values and listeners belong to the application, the extension releases them at shutdown
+    private static final ClassLoaderLocal<State> STATES = new ClassLoaderLocal<State>() {
+        @Override
+        protected State initialValue(final ClassLoader loader) {
+            return new State(loader);
+        }
+
+        @Override
+        protected void onRelease(final State value) {
+            value.stopRefresher();
+            value.values.clear();
+            value.listeners.clear();
+        }
+    };
+
+    private ResolvedProperties() {
+        // no-op
+    }
+
+    public static boolean isEnabled() {
+        return STATES.get().enabled;
+    }
+
+    /**
+     * Forget a resolved key, next interpolation will resolve it again.
+     *
+     * @param key the key to evict
+     */
+    public static void invalidate(final String key) {
+        STATES.get().values.remove(key);
+    }
+
+    public static void invalidateAll() {
+        STATES.get().values.clear();
+    }
+
+    /**
+     * Resolve again all the cached keys and notify listeners of changed values.
+     */
+    public static void refresh() {
+        STATES.get().refresh();
+    }
+
+    public static void addListener(final Listener listener) {
+        STATES.get().listeners.add(listener);
+    }
+
+    public static void removeListener(final Listener listener) {
+        STATES.get().listeners.remove(listener);
+    }
+
+    /**
+     * Stops the background refresh of the current application.
+     */
+    public static void stopRefresher() {
+        STATES.get().stopRefresher();
+    }
+
+    static String lookup(final String key) {
+        final State state = STATES.get();
+        if (!state.enabled) {
+            return ConfigResolver.getPropertyValue(key);
+        }
+
+        final Entry entry = state.values.get(key);
+        if (entry != null && (state.ttl <= 0 || System.nanoTime() - entry.resolvedAt < state.ttl)) {
+            return entry.value;
+        }
+        return state.resolve(key, entry);
+    }
+
+    private static boolean equals(final String a, final String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public interface Listener {
+        void onChange(String key, String oldValue, String newValue);
+    }
+
+    private static final class State {
+        private final long ttl = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(ConfigResolver.getPropertyValue("cdi.config.interpolation.cache-ttl", "0")));
+        private final long refreshInterval = Long.parseLong(ConfigResolver.getPropertyValue("cdi.config.interpolation.refresh-interval", "0"));
+        private final boolean enabled = ttl > 0 || refreshInterval > 0
+            || "true".equalsIgnoreCase(ConfigResolver.getPropertyValue("cdi.config.interpolation.cache", "false"));
+        private final ConcurrentMap<String, Entry> values = new ConcurrentHashMap<String, Entry>();
+        private final Collection<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+        private final WeakReference<ClassLoader> loader; // values are weakly keyed by it, don't pin it
+        private ScheduledExecutorService refresher;
+
+        private State(final ClassLoader loader) {
+            this.loader = new WeakReference<ClassLoader>(loader);
+        }
+
+        private void refresh() {
+            for (final Map.Entry<String, Entry> entry : values.entrySet()) {
+                resolve(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private String resolve(final String key, final Entry previous) {
+            final String value = ConfigResolver.getPropertyValue(key);
+            final Entry entry = new Entry(value, System.nanoTime());
+            if (previous == null) {
+                if (values.putIfAbsent(key, entry) == null && refreshInterval > 0) {
+                    startRefresher();
+                }
+            } else if (values.replace(key, previous, entry) && !ResolvedProperties.equals(previous.value, value)) {
+                for (final Listener listener : listeners) {
+                    try {
+                        listener.onChange(key, previous.value, value);
+                    } catch (final RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Listener " + listener + " failed for " + key, e);
+                    }
+                }
+            }
+            return value;
+        }
+
+        private synchronized void startRefresher() {
+            if (refresher != null) {
+                return;
+            }
+
+            final ClassLoader appLoader = loader.get(); // ConfigSources are loaded from it
+            refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "cdi-light-config-refresher");
+                    thread.setDaemon(true);
+                    thread.setContextClassLoader(appLoader);
+                    return thread;
+                }
+            });
+            refresher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (final RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Can't refresh resolved properties", e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void stopRefresher() {
+            if (refresher != null) {
+                refresher.shutdownNow();
+                refresher = null;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String value; // null if the key is not set
+        private final long resolvedAt;
+
+        private Entry(final String value, final long resolvedAt) {
+            this.value = value;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
+import org.apache.deltaspike.core.api.config.ConfigResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * A configured value compiled in literal and placeholder segments. Supported syntax:
+ * <ul>
+ *     <li>${key}: replaced by the key value</li>
+ *     <li>${key:default}: default is used when the key is not set</li>
+ *     <li>placeholders can be embedded (jdbc:${host}:${port}) and nested (${db.${env}.url}, ${a:${b}})</li>
+ *     <li>$${: escapes a placeholder, $${key} is the literal ${key}</li>
+ * </ul>
+ * Resolved values are interpolated too, cycles fail with a ConfigurationException.
+ * Keys are resolved through {@link ResolvedProperties}. A key without value nor default is kept as it, logged once
+ * or fails depending on the DeltaSpike property cdi.config.interpolation.unresolved (keep, warn - default - or fail).
+ */
+final class Template {
+    private static final Logger LOGGER = Logger.getLogger(Template.class.getName());
+    private static final int MAX_TEMPLATES = 4096; // configuration values are finite but don't let a misuse grow forever
+    private static final ConcurrentMap<String, Template> TEMPLATES = new ConcurrentHashMap<String, Template>();
+    private static final ClassLoaderLocal<Unresolved> UNRESOLVED = new ClassLoaderLocal<Unresolved>() {
+        @Override
+        protected Unresolved initialValue(final ClassLoader loader) {
+            return new Unresolved(ConfigResolver.getPropertyValue("cdi.config.interpolation.unresolved", "warn"));
+        }
+    };
+
+    private final Object[] segments; // String or Placeholder
+    private final int literalLength;
+
+    private Template(final Object[] segments) {
+        this.segments = segments;
+
+        int length = 0;
+        for (final Object segment : segments) {
+            if (String.class.isInstance(segment)) {
+                length += String.class.cast(segment).length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    static boolean hasPlaceholder(final String raw) {
+        return raw.indexOf("${") >= 0 && !compile(raw).isConstant();
+    }
+
+    static String interpolate(final String raw) {
+        if (raw == null || raw.indexOf("${") < 0) { // most values, no lookup at all
+            return raw;
+        }
+        return compile(raw).evaluate(null);
+    }
+
+    static Template compile(final String raw) {
+        Template template = TEMPLATES.get(raw);
+        if (template == null) {
+            template = parse(raw, 0, raw.length());
+            if (TEMPLATES.size() < MAX_TEMPLATES) {
+                TEMPLATES.putIfAbsent(raw, template);
+            }
+        }
+        return template;
+    }
+
+    boolean isConstant() {
+        return segments.length == 0 || (segments.length == 1 && String.class.isInstance(segments[0]));
+    }
+
+    private String evaluate(final Chain chain) {
+        switch (segments.length) {
+            case 0:
+                return "";
+            case 1: // no concatenation needed
+                final Object segment = segments[0];
+                if (String.class.isInstance(segment)) {
+                    return String.class.cast(segment);
+                }
+                return Placeholder.class.cast(segment).evaluate(chain);
+            default:
+                final StringBuilder builder = new StringBuilder(literalLength + 16 * (segments.length / 2 + 1));
+                for (final Object s : segments) {
+                    if (String.class.isInstance(s)) {
+                        builder.append(String.class.cast(s));
+                    } else {
+                        builder.append(Placeholder.class.cast(s).evaluate(chain));
+                    }
+                }
+                return builder.toString();
+        }
+    }
+
+    private static Template parse(final String raw, final int start, final int end) {
+        final List<Object> segments = new ArrayList<Object>(2);
+        final StringBuilder literal = new StringBuilder(); // escapes split literals, merge them to stay constant
+        int literalStart = start;
+        int i = start;
+        while (i < end - 1) {
+            if (raw.charAt(i) != '$') {
+                i++;
+                continue;
+            }
+            if (raw.charAt(i + 1) == '$' && i + 2 < end && raw.charAt(i + 2) == '{') { // $${ is a literal ${
+                literal.append(raw, literalStart, i);
+                literalStart = i + 1;
+                i += 3;
+                continue;
+            }
+            if (raw.charAt(i + 1) != '{') {
+                i++;
+                continue;
+            }
+
+            final int close = findClosingBrace(raw, i + 2, end);
+            if (close < 0) { // not a placeholder, keep the end as a literal
+                break;
+            }
+
+            literal.append(raw, literalStart, i);
+            if (literal.length() > 0) {
+                segments.add(literal.toString());
+                literal.setLength(0);
+            }
+            segments.add(placeholder(raw, i + 2, close));
+            i = close + 1;
+            literalStart = i;
+        }
+        literal.append(raw, literalStart, end);
+        if (literal.length() > 0) {
+            segments.add(literal.toString());
+        }
+        return new Template(segments.toArray(new Object[segments.size()]));
+    }
+
+    private static Placeholder placeholder(final String raw, final int start, final int end) {
+        int depth = 0;
+        for (int i = start; i < end; i++) {
+            final char c = raw.charAt(i);
+            if (c == '$' && i + 1 < end && raw.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                depth--;
+            } else if (c == ':' && depth == 0) {
+                return new Placeholder(parse(raw, start, i), parse(raw, i + 1, end));
+            }
+        }
+        return new Placeholder(parse(raw, start, end), null);
+    }
+
+    private static int findClosingBrace(final String raw, final int from, final int end) {
+        int depth = 0;
+        for (int i = from; i < end; i++) {
+            final char c = raw.charAt(i);
+            if (c == '$' && i + 1 < end && raw.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Placeholder {
+        private final Template key;
+        private final Template defaultValue; // null if no default
+
+        private Placeholder(final Template key, final Template defaultValue) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+        }
+
+        private String evaluate(final Chain chain) {
+            final String name = key.evaluate(chain);
+            final String value = ResolvedProperties.lookup(name);
+            if (value == null) {
+                if (defaultValue != null) {
+                    return defaultValue.evaluate(chain);
+                }
+                return UNRESOLVED.get().handle(name);
+            }
+            if (value.indexOf("${") < 0) {
+                return value;
+            }
+
+            if (chain != null && chain.contains(name)) {
+                throw new ConfigurationException("Cyclic interpolation: " + chain.path(name));
+            }
+            return compile(value).evaluate(new Chain(name, chain));
+        }
+    }
+
+    private static final class Unresolved {
+        private final String mode;
+        private final Set<String> warned = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        private Unresolved(final String mode) {
+            if (!"keep".equalsIgnoreCase(mode) && !"warn".equalsIgnoreCase(mode) && !"fail".equalsIgnoreCase(mode)) {
+                throw new ConfigurationException("Unsupported cdi.config.interpolation.unresolved: " + mode + ", use keep, warn or fail");
+            }
+            this.mode = mode;
+        }
+
+        private String handle(final String name) {
+            if ("fail".equalsIgnoreCase(mode)) {
+                throw new ConfigurationException("No value for ${" + name + "}");
+            }
+            if ("warn".equalsIgnoreCase(mode) && warned.add(name)) { // once, @Dependent beans evaluate it for each instance
+                LOGGER.warning("No value for ${" + name + "}, it is kept as it");
+            }
+            return "${" + name + "}";
+        }
+    }
+
+    // keys being resolved, only allocated when a value references other keys
+    private static final class Chain {
+        private final String key;
+        private final Chain parent;
+
+        private Chain(final String key, final Chain parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+
+        private boolean contains(final String name) {
+            Chain current = this;
+            while (current != null) {
+                if (current.key.equals(name)) {
+                    return true;
+                }
+                current = current.parent;
+            }
+            return false;
+        }
+
+        private String path(final String last) {
+            final StringBuilder builder = new StringBuilder(last);
+            Chain current = this;
+            while (current != null) {
+                builder.insert(0, current.key + " -> ");
+                current = current.parent;
+            }
+            return builder.toString();
+        }
+    }
+}
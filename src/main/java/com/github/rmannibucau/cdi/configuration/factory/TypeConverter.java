@@ -0,0 +1,22 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import java.lang.reflect.Type;
+
+/**
+ * Converts a configured value to a type, registered through ServiceLoader.
+ * A converter registered for a type overrides the default one and also handles its subclasses
+ * if no more specific converter is registered.
+ */
+public interface TypeConverter {
+    /**
+     * @return the handled type
+     */
+    Class<?> type();
+
+    /**
+     * @param type the expected type (can be a parameterized type)
+     * @param value the interpolated value, never null
+     * @return the converted value
+     */
+    Object convert(Type type, String value);
+}
@@ -0,0 +1,66 @@
+package com.github.rmannibucau.cdi.configuration.factory;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Map comparing keys by identity and holding them weakly, entries are dropped
+ * once the key is garbage collected (on the next access). Backed by a ConcurrentHashMap so reads don't lock.
+ *
+ * Note: values are held strongly so they must not reference their key, ContextualFactory uses
+ * creational contexts as keys and instances never reference them.
+ */
+final class WeakIdentityMap<K, V> {
+    private final ConcurrentMap<Key, V> entries = new ConcurrentHashMap<Key, V>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    V get(final K key) {
+        expunge();
+        return entries.get(new Key(key, null));
+    }
+
+    V putIfAbsent(final K key, final V value) {
+        expunge();
+        return entries.putIfAbsent(new Key(key, queue), value);
+    }
+
+    V remove(final K key) {
+        expunge();
+        return entries.remove(new Key(key, null));
+    }
+
+    private void expunge() {
+        Object stale;
+        while ((stale = queue.poll()) != null) {
+            entries.remove(stale);
+        }
+    }
+
+    private static final class Key extends WeakReference<Object> {
+        private final int hash;
+
+        private Key(final Object referent, final ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!Key.class.isInstance(o)) {
+                return false;
+            }
+            final Object referent = get();
+            return referent != null && referent == Key.class.cast(o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
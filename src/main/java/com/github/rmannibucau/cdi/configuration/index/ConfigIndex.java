@@ -0,0 +1,144 @@
+package com.github.rmannibucau.cdi.configuration.index;
+
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary form of the beans of a configuration file, see ConfigIndexer to generate it at build time.
+ *
+ * The index stores the checksum of the configuration file it was generated from to be able to detect stale indexes.
+ */
+public final class ConfigIndex {
+    public static final String EXTENSION = ".idx";
+
+    private static final int MAGIC = 0xCD1C0F16;
+    private static final int VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ConfigIndex() {
+        // no-op
+    }
+
+    public static long checksum(final InputStream is) throws IOException {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    public static void write(final OutputStream os, final long checksum, final Collection<ConfigBean> beans) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(checksum);
+        out.writeInt(beans.size());
+        for (final ConfigBean bean : beans) {
+            writeString(out, bean.getName());
+            writeString(out, bean.getClassname());
+            writeString(out, bean.getScope());
+            writeString(out, bean.getQualifier());
+            writeString(out, bean.getFactoryClass());
+            writeString(out, bean.getFactoryMethod());
+            writeString(out, bean.getInitMethod());
+            writeString(out, bean.getDestroyMethod());
+            out.writeBoolean(bean.isConstructor());
+            writeStrings(out, bean.getTypeParameters());
+            writeMap(out, bean.getDirectAttributes());
+            writeMap(out, bean.getRefAttributes());
+            writeStrings(out, bean.getAttributeOrder());
+        }
+        out.flush();
+    }
+
+    /**
+     * @param is the index stream
+     * @param checksum the checksum of the current configuration file
+     * @return the indexed beans or null if the index doesn't match the configuration file
+     * @throws IOException if the index can't be read
+     */
+    public static Collection<ConfigBean> read(final InputStream is, final long checksum) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != checksum) {
+            return null;
+        }
+
+        final int size = in.readInt();
+        final Collection<ConfigBean> beans = new ArrayList<ConfigBean>(size);
+        for (int i = 0; i < size; i++) {
+            final ConfigBean bean = new ConfigBean(readString(in), readString(in), readString(in), readString(in),
+                readString(in), readString(in), readString(in), readString(in), in.readBoolean());
+            readStrings(in, bean.getTypeParameters());
+            readMap(in, bean.getDirectAttributes());
+            readMap(in, bean.getRefAttributes());
+            readStrings(in, bean.getAttributeOrder());
+            beans.add(bean);
+        }
+        return beans;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(UTF_8); // writeUTF is limited to 64k
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (final String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void readStrings(final DataInputStream in, final Collection<String> values) throws IOException {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+    }
+
+    private static void writeMap(final DataOutputStream out, final Map<String, String> values) throws IOException {
+        out.writeInt(values.size());
+        for (final Map.Entry<String, String> entry : values.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void readMap(final DataInputStream in, final Map<String, String> values) throws IOException {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            values.put(readString(in), readString(in));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.rmannibucau.cdi.configuration.index;
+
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+import com.github.rmannibucau.cdi.configuration.xml.ConfigParser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * Generates the index of configuration files at build time. Usage:
+ *
+ * java ConfigIndexer target/classes/cdi-configuration.xml [other configuration files]
+ *
+ * The index is written next to the configuration file (cdi-configuration.xml.idx).
+ * Note: the project classes need to be in the classpath if some namespace handler needs them.
+ */
+public final class ConfigIndexer {
+    private ConfigIndexer() {
+        // no-op
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: " + ConfigIndexer.class.getName() + " <configuration file>...");
+        }
+
+        for (final String path : args) {
+            final File configuration = new File(path);
+            if (!configuration.isFile()) {
+                System.out.println("No configuration file " + configuration.getAbsolutePath() + ", skipping");
+                continue;
+            }
+
+            final File index = new File(configuration.getParentFile(), configuration.getName() + ConfigIndex.EXTENSION);
+            index(configuration, index);
+            System.out.println("Indexed " + configuration.getAbsolutePath() + " in " + index.getAbsolutePath());
+        }
+    }
+
+    public static void index(final File configuration, final File index) throws Exception {
+        final long checksum;
+        final Collection<ConfigBean> beans;
+
+        InputStream is = new FileInputStream(configuration);
+        try {
+            checksum = ConfigIndex.checksum(is);
+        } finally {
+            close(is);
+        }
+
+        is = new FileInputStream(configuration);
+        try {
+            beans = ConfigParser.parse(is);
+        } finally {
+            close(is);
+        }
+
+        final OutputStream os = new FileOutputStream(index);
+        try {
+            ConfigIndex.write(os, checksum, beans);
+        } finally {
+            close(os);
+        }
+    }
+
+    private static void close(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (final IOException e) {
+            // no-op
+        }
+    }
+}
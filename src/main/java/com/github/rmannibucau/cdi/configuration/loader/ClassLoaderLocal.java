@@ -0,0 +1,113 @@
+package com.github.rmannibucau.cdi.configuration.loader;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Like a ThreadLocal but per application (context classloader): the library can be shared by several
+ * deployments so static caches must not leak values from one application to another.
+ *
+ * Values usually reference application classes so they would pin their classloader, the extension
+ * calls {@link #release(ClassLoader)} at shutdown to drop them.
+ *
+ * @param <T> the value type.
+ */
+public abstract class ClassLoaderLocal<T> {
+    private static final Logger LOGGER = Logger.getLogger(ClassLoaderLocal.class.getName());
+    private static final Collection<ClassLoaderLocal<?>> INSTANCES = new CopyOnWriteArrayList<ClassLoaderLocal<?>>();
+
+    private final Map<ClassLoader, T> values = new WeakHashMap<ClassLoader, T>();
+    private volatile Last<T> last; // most of the time there is a single application, avoids the lock
+
+    protected ClassLoaderLocal() {
+        INSTANCES.add(this);
+    }
+
+    /**
+     * @param loader the application classloader.
+     * @return the value to use for this classloader.
+     */
+    protected abstract T initialValue(ClassLoader loader);
+
+    /**
+     * Called when the application is stopped.
+     *
+     * @param value the value to release.
+     */
+    protected void onRelease(final T value) {
+        // no-op
+    }
+
+    public T get() {
+        return get(ClassLoaders.tccl());
+    }
+
+    public T get(final ClassLoader loader) {
+        final Last<T> current = last;
+        if (current != null && current.loader == loader) {
+            return current.value;
+        }
+
+        synchronized (values) {
+            T value = values.get(loader);
+            if (value == null) {
+                value = initialValue(loader);
+                values.put(loader, value);
+            }
+            last = new Last<T>(loader, value);
+            return value;
+        }
+    }
+
+    /**
+     * @return the value of all the applications.
+     */
+    public Collection<T> all() {
+        synchronized (values) {
+            return new CopyOnWriteArrayList<T>(values.values());
+        }
+    }
+
+    private void remove(final ClassLoader loader) {
+        final T value;
+        synchronized (values) {
+            value = values.remove(loader);
+            final Last<T> current = last;
+            if (current != null && current.loader == loader) {
+                last = null;
+            }
+        }
+        if (value != null) {
+            try {
+                onRelease(value);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Can't release " + value, e);
+            }
+        }
+    }
+
+    /**
+     * Drops the values of an application.
+     *
+     * @param loader the application classloader.
+     */
+    public static void release(final ClassLoader loader) {
+        for (final ClassLoaderLocal<?> local : INSTANCES) {
+            local.remove(loader);
+        }
+    }
+
+    private static final class Last<T> {
+        private final ClassLoader loader;
+        private final T value;
+
+        private Last(final ClassLoader loader, final T value) {
+            this.loader = loader;
+            this.value = value;
+        }
+    }
+}
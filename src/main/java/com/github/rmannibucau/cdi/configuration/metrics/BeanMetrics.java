@@ -0,0 +1,107 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime metrics of a configured bean.
+ */
+public class BeanMetrics implements BeanMetricsMBean {
+    private final String name;
+    private final Collection<BeanMetricsListener> listeners;
+    private final AtomicLong failures = new AtomicLong();
+    private final Histogram creation = new Histogram();
+    private final Histogram postConstruct = new Histogram();
+    private final Histogram destruction = new Histogram();
+
+    public BeanMetrics(final String name, final Collection<BeanMetricsListener> listeners) {
+        this.name = name;
+        this.listeners = listeners;
+    }
+
+    public void created(final long creationNanos, final long postConstructNanos) {
+        creation.record(creationNanos);
+        postConstruct.record(postConstructNanos);
+        for (final BeanMetricsListener listener : listeners) {
+            listener.onCreate(name, creationNanos, postConstructNanos);
+        }
+    }
+
+    public void destroyed(final long nanos) {
+        destruction.record(nanos);
+        for (final BeanMetricsListener listener : listeners) {
+            listener.onDestroy(name, nanos);
+        }
+    }
+
+    public void failed(final RuntimeException error) {
+        failures.incrementAndGet();
+        for (final BeanMetricsListener listener : listeners) {
+            listener.onFailure(name, error);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCreated() {
+        return creation.getCount();
+    }
+
+    @Override
+    public long getDestroyed() {
+        return destruction.getCount();
+    }
+
+    @Override
+    public long getLive() {
+        return creation.getCount() - destruction.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public long getCreationMean() {
+        return micros(creation.getMean());
+    }
+
+    @Override
+    public long getCreation99thPercentile() {
+        return micros(creation.getPercentile(.99));
+    }
+
+    @Override
+    public long getCreationMax() {
+        return micros(creation.getMax());
+    }
+
+    @Override
+    public long getPostConstructMean() {
+        return micros(postConstruct.getMean());
+    }
+
+    @Override
+    public long getPostConstruct99thPercentile() {
+        return micros(postConstruct.getPercentile(.99));
+    }
+
+    @Override
+    public long getDestructionMean() {
+        return micros(destruction.getMean());
+    }
+
+    @Override
+    public long getDestruction99thPercentile() {
+        return micros(destruction.getPercentile(.99));
+    }
+
+    private static long micros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+/**
+ * Registered through ServiceLoader to forward runtime metrics to a metrics library.
+ * Called synchronously on the creating/destroying thread so it should be fast.
+ */
+public interface BeanMetricsListener {
+    void onCreate(String bean, long creationNanos, long postConstructNanos);
+
+    void onDestroy(String bean, long destructionNanos);
+
+    void onFailure(String bean, RuntimeException error);
+}
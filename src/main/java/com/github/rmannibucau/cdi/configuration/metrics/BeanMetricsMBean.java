@@ -0,0 +1,28 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+/**
+ * Times are in microseconds.
+ */
+public interface BeanMetricsMBean {
+    long getCreated();
+
+    long getDestroyed();
+
+    long getLive();
+
+    long getFailures();
+
+    long getCreationMean();
+
+    long getCreation99thPercentile();
+
+    long getCreationMax();
+
+    long getPostConstructMean();
+
+    long getPostConstruct99thPercentile();
+
+    long getDestructionMean();
+
+    long getDestruction99thPercentile();
+}
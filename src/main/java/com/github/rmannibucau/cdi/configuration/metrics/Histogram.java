@@ -0,0 +1,75 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with power of two buckets: recording is a few atomic increments
+ * and percentiles are precise within a factor of 2 which is enough to spot slow beans.
+ *
+ * Count and sum are updated by every recording so they are striped per thread (LongAdder is not available in Java 7):
+ * each stripe uses its own cache line and reads sum the stripes.
+ */
+public class Histogram {
+    private static final int PADDING = 8; // longs in a cache line
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES * PADDING); // count then sum in each stripe
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+        final int stripe = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+        counters.incrementAndGet(stripe);
+        counters.addAndGet(stripe + 1, value);
+
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return sum(0);
+    }
+
+    public long getMean() {
+        final long c = getCount();
+        return c == 0 ? 0 : sum(1) / c;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 1.
+     * @return the upper bound (nanoseconds) of the bucket containing this percentile.
+     */
+    public long getPercentile(final double percentile) {
+        final long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get()); // (1L << 63) - 1 is Long.MAX_VALUE
+            }
+        }
+        return max.get();
+    }
+
+    private long sum(final int offset) {
+        long total = 0;
+        for (int i = offset; i < counters.length(); i += PADDING) {
+            total += counters.get(i);
+        }
+        return total;
+    }
+}
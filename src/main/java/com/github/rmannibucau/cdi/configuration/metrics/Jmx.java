@@ -0,0 +1,49 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class Jmx {
+    public static final String DOMAIN = "com.github.rmannibucau.cdi.configuration";
+
+    private static final Logger LOGGER = Logger.getLogger(Jmx.class.getName());
+
+    private Jmx() {
+        // no-op
+    }
+
+    /**
+     * @return the registered name or null if the registration failed (it is only logged).
+     */
+    public static ObjectName register(final Object mbean, final String name) {
+        try {
+            final ObjectName objectName = new ObjectName(DOMAIN + ":" + name);
+            server().registerMBean(mbean, objectName);
+            return objectName;
+        } catch (final Exception e) {
+            LOGGER.log(Level.WARNING, "Can't register MBean " + name, e);
+            return null;
+        }
+    }
+
+    public static void unregister(final ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            final MBeanServer server = server();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (final Exception e) {
+            LOGGER.log(Level.FINE, "Can't unregister MBean " + name, e);
+        }
+    }
+
+    private static MBeanServer server() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent by the extension at startup: parsing per configuration file and bean creation per bean.
+ */
+public class StartupMetrics implements StartupMetricsMBean {
+    private static final int SLOWEST_BEANS = 20;
+
+    private final Collection<Configuration> configurations = new ArrayList<Configuration>();
+    private final Collection<BeanTiming> beans = new ArrayList<BeanTiming>();
+
+    public synchronized void configuration(final String url, final long nanos, final int beanCount, final boolean indexed) {
+        configurations.add(new Configuration(url, nanos, beanCount, indexed));
+    }
+
+    public synchronized void bean(final BeanTiming timing) {
+        beans.add(timing);
+    }
+
+    @Override
+    public synchronized int getConfigurationCount() {
+        return configurations.size();
+    }
+
+    @Override
+    public synchronized long getParsingTime() {
+        long total = 0;
+        for (final Configuration configuration : configurations) {
+            total += configuration.nanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(total);
+    }
+
+    @Override
+    public synchronized int getBeanCount() {
+        return beans.size();
+    }
+
+    @Override
+    public synchronized long getBeanCreationTime() {
+        long total = 0;
+        for (final BeanTiming bean : beans) {
+            total += bean.total();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(total);
+    }
+
+    @Override
+    public synchronized String[] getConfigurations() {
+        final String[] result = new String[configurations.size()];
+        int i = 0;
+        for (final Configuration configuration : configurations) {
+            result[i++] = configuration.toString();
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized String[] getSlowestBeans() {
+        final List<BeanTiming> sorted = new ArrayList<BeanTiming>(beans);
+        Collections.sort(sorted, new Comparator<BeanTiming>() {
+            @Override
+            public int compare(final BeanTiming o1, final BeanTiming o2) {
+                final long t1 = o1.total();
+                final long t2 = o2.total();
+                return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+            }
+        });
+
+        final int size = Math.min(SLOWEST_BEANS, sorted.size());
+        final String[] result = new String[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = sorted.get(i).toString();
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized String getSummary() {
+        long classLoading = 0;
+        long resolution = 0;
+        long factory = 0;
+        long builder = 0;
+        for (final BeanTiming bean : beans) {
+            classLoading += bean.classLoading;
+            resolution += bean.resolution;
+            factory += bean.factory;
+            builder += bean.builder;
+        }
+        return "configurations=" + configurations.size()
+            + ", parsing=" + getParsingTime() + "ms"
+            + ", beans=" + beans.size()
+            + ", creation=" + getBeanCreationTime() + "ms"
+            + " (class-loading=" + millis(classLoading) + "ms"
+            + ", resolution=" + millis(resolution) + "ms"
+            + ", factories=" + millis(factory) + "ms"
+            + ", builders=" + millis(builder) + "ms)";
+    }
+
+    private static long millis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static class Configuration {
+        private final String url;
+        private final long nanos;
+        private final int beanCount;
+        private final boolean indexed;
+
+        private Configuration(final String url, final long nanos, final int beanCount, final boolean indexed) {
+            this.url = url;
+            this.nanos = nanos;
+            this.beanCount = beanCount;
+            this.indexed = indexed;
+        }
+
+        @Override
+        public String toString() {
+            return url + ": " + millis(nanos) + "ms, beans=" + beanCount + (indexed ? ", indexed" : "");
+        }
+    }
+
+    /**
+     * Nanoseconds spent in each step of the creation of a bean.
+     */
+    public static class BeanTiming {
+        private final String name;
+        private long classLoading;
+        private long resolution; // type, scope and qualifier
+        private long factory;
+        private long builder;
+
+        public BeanTiming(final String name) {
+            this.name = name;
+        }
+
+        public void classLoading(final long nanos) {
+            classLoading = nanos;
+        }
+
+        public void resolution(final long nanos) {
+            resolution = nanos;
+        }
+
+        public void factory(final long nanos) {
+            factory = nanos;
+        }
+
+        public void builder(final long nanos) {
+            builder = nanos;
+        }
+
+        public long total() {
+            return classLoading + resolution + factory + builder;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + millis(total()) + "ms"
+                + " (class-loading=" + millis(classLoading) + "ms"
+                + ", resolution=" + millis(resolution) + "ms"
+                + ", factory=" + millis(factory) + "ms"
+                + ", builder=" + millis(builder) + "ms)";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.rmannibucau.cdi.configuration.metrics;
+
+/**
+ * Times are in milliseconds.
+ */
+public interface StartupMetricsMBean {
+    int getConfigurationCount();
+
+    long getParsingTime();
+
+    int getBeanCount();
+
+    long getBeanCreationTime();
+
+    String[] getConfigurations();
+
+    String[] getSlowestBeans();
+
+    String getSummary();
+}
@@ -0,0 +1,147 @@
+package com.github.rmannibucau.cdi.configuration.properties;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read only String map stored in two arrays (open addressing, linear probing).
+ * No entry object is kept and reads are not synchronized.
+ */
+public final class CompactMap extends AbstractMap<String, String> {
+    private final String[] keys;
+    private final String[] values;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param keys keys, a duplicated key keeps the last value.
+     * @param values values, same size as keys.
+     * @param count number of entries to read in keys and values.
+     */
+    public CompactMap(final String[] keys, final String[] values, final int count) {
+        int capacity = 2;
+        while (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.values = new String[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < count; i++) {
+            add(keys[i], values[i]);
+        }
+    }
+
+    public static CompactMap copyOf(final Map<?, ?> map) {
+        final String[] keys = new String[map.size()];
+        final String[] values = new String[map.size()];
+        int i = 0;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            keys[i] = String.valueOf(entry.getKey());
+            values[i] = String.valueOf(entry.getValue());
+            i++;
+        }
+        return new CompactMap(keys, values, i);
+    }
+
+    @Override
+    public String get(final Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void add(final String key, final String value) {
+        int index = slot(key);
+        while (keys[index] != null) {
+            if (keys[index].equals(key)) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    private int indexOf(final Object key) {
+        if (!String.class.isInstance(key)) {
+            return -1;
+        }
+
+        int index = slot(String.class.cast(key));
+        String current;
+        while ((current = keys[index]) != null) {
+            if (current.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(final String key) {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int index = next(0);
+
+        @Override
+        public boolean hasNext() {
+            return index < keys.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (index >= keys.length) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String, String> entry = new SimpleImmutableEntry<String, String>(keys[index], values[index]);
+            index = next(index + 1);
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("read only map");
+        }
+
+        private int next(final int from) {
+            int i = from;
+            while (i < keys.length && keys[i] == null) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.github.rmannibucau.cdi.configuration.properties;
+
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the {@link java.util.Properties} format (ISO-8859-1, escapes, continuation lines, comments)
+ * directly from bytes into a {@link CompactMap}. Files are memory mapped so they are not copied
+ * in the heap before being parsed.
+ */
+public final class PropertiesScanner {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+    private char[] chars = new char[128];
+    private int length;
+    private String[] keys = new String[64];
+    private String[] values = new String[64];
+    private int count;
+
+    private PropertiesScanner(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    public static CompactMap read(final File file) {
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final FileChannel channel = raf.getChannel();
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                try {
+                    return scan(buffer);
+                } finally { // values are copied in Strings, don't keep the file open until the buffer is collected
+                    Unmapper.unmap(buffer);
+                }
+            } finally {
+                raf.close();
+            }
+        } catch (final IOException e) {
+            throw new ConfigurationException(e);
+        }
+    }
+
+    public static CompactMap read(final InputStream stream) {
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] bytes = new byte[8192];
+            int read;
+            while ((read = stream.read(bytes)) >= 0) {
+                baos.write(bytes, 0, read);
+            }
+            return scan(ByteBuffer.wrap(baos.toByteArray()));
+        } catch (final IOException e) {
+            throw new ConfigurationException(e);
+        }
+    }
+
+    public static CompactMap scan(final ByteBuffer buffer) {
+        return new PropertiesScanner(buffer).scan();
+    }
+
+    private CompactMap scan() {
+        while (position < limit) {
+            final int c = buffer.get(position) & 0xFF;
+            if (c == ' ' || c == '\t' || c == '\f' || c == '\r' || c == '\n') {
+                position++;
+                continue;
+            }
+            if (c == '#' || c == '!') {
+                skipLine();
+                continue;
+            }
+
+            final String key = token(true);
+            skipBlanks();
+            if (position < limit) {
+                final int separator = buffer.get(position) & 0xFF;
+                if (separator == '=' || separator == ':') {
+                    position++;
+                    skipBlanks();
+                }
+            }
+            add(key, token(false));
+        }
+        return new CompactMap(keys, values, count);
+    }
+
+    // reads until the end of the logical line (or an unescaped separator for keys)
+    private String token(final boolean key) {
+        length = 0;
+        while (position < limit) {
+            final int c = buffer.get(position) & 0xFF;
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            if (key && (c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f')) {
+                break;
+            }
+            position++;
+
+            if (c != '\\') {
+                append((char) c);
+                continue;
+            }
+            if (position >= limit) {
+                break;
+            }
+
+            final int escaped = buffer.get(position++) & 0xFF;
+            switch (escaped) {
+                case '\r': // continuation line
+                    if (position < limit && buffer.get(position) == '\n') {
+                        position++;
+                    }
+                    skipBlanks();
+                    break;
+                case '\n':
+                    skipBlanks();
+                    break;
+                case 't':
+                    append('\t');
+                    break;
+                case 'n':
+                    append('\n');
+                    break;
+                case 'r':
+                    append('\r');
+                    break;
+                case 'f':
+                    append('\f');
+                    break;
+                case 'u':
+                    append(unicode());
+                    break;
+                default:
+                    append((char) escaped);
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    private char unicode() {
+        if (position + 4 > limit) {
+            throw new ConfigurationException("Malformed \\uxxxx encoding");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            final int digit = Character.digit(buffer.get(position++) & 0xFF, 16);
+            if (digit < 0) {
+                throw new ConfigurationException("Malformed \\uxxxx encoding");
+            }
+            value = (value << 4) + digit;
+        }
+        return (char) value;
+    }
+
+    private void skipBlanks() {
+        while (position < limit) {
+            final int c = buffer.get(position) & 0xFF;
+            if (c != ' ' && c != '\t' && c != '\f') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private void skipLine() {
+        while (position < limit) {
+            final int c = buffer.get(position++) & 0xFF;
+            if (c == '\n' || c == '\r') {
+                return;
+            }
+        }
+    }
+
+    private void append(final char c) {
+        if (length == chars.length) {
+            final char[] bigger = new char[chars.length * 2];
+            System.arraycopy(chars, 0, bigger, 0, length);
+            chars = bigger;
+        }
+        chars[length++] = c;
+    }
+
+    private void add(final String key, final String value) {
+        if (count == keys.length) {
+            final String[] biggerKeys = new String[keys.length * 2];
+            final String[] biggerValues = new String[values.length * 2];
+            System.arraycopy(keys, 0, biggerKeys, 0, count);
+            System.arraycopy(values, 0, biggerValues, 0, count);
+            keys = biggerKeys;
+            values = biggerValues;
+        }
+        keys[count] = key;
+        values[count] = value;
+        count++;
+    }
+
+    // no public API before Java 9 and Unsafe is only usable there, best effort else the GC unmaps it
+    private static final class Unmapper {
+        private static final Object UNSAFE; // Java 9+
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+            } catch (final Exception e) {
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        private Unmapper() {
+            // no-op
+        }
+
+        private static void unmap(final MappedByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                    return;
+                }
+
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner"); // sun.nio.ch.DirectBuffer
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    final Method clean = cleaner.getClass().getMethod("clean");
+                    clean.setAccessible(true);
+                    clean.invoke(cleaner);
+                }
+            } catch (final Exception e) {
+                // no-op: not supported by this JVM
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.rmannibucau.cdi.configuration.reload;
+
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+import com.github.rmannibucau.cdi.configuration.factory.ContextualFactory;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Applies a new version of a configuration file to the deployed beans:
+ * only beans whose configuration changed get a new factory.
+ */
+public class ConfigurationReloader {
+    private static final Logger LOGGER = Logger.getLogger(ConfigurationReloader.class.getName());
+
+    private final BeanManager beanManager;
+    private final Collection<RefreshStrategy> strategies = new ArrayList<RefreshStrategy>();
+    private final Map<String, Registration> registrations = new HashMap<String, Registration>();
+
+    public ConfigurationReloader(final BeanManager beanManager) {
+        this.beanManager = beanManager;
+        for (final RefreshStrategy strategy : ServiceLoader.load(RefreshStrategy.class, ClassLoaders.tccl())) {
+            strategies.add(strategy);
+        }
+    }
+
+    public synchronized void register(final URL origin, final ContextualFactory<?> factory, final Bean<?> bean) {
+        registrations.put(bean.getName(), new Registration(origin, factory, bean));
+    }
+
+    public synchronized Collection<URL> origins() {
+        final Set<URL> origins = new HashSet<URL>();
+        for (final Registration registration : registrations.values()) {
+            origins.add(registration.origin);
+        }
+        return origins;
+    }
+
+    public synchronized void reload(final URL url, final Collection<ConfigBean> parsed) {
+        // all new factories are built before switching any bean so an invalid file is not partially applied
+        final Map<String, Change> changes = new LinkedHashMap<String, Change>();
+        final Set<String> names = new HashSet<String>();
+        for (final ConfigBean bean : parsed) {
+            final String name = bean.getName();
+            if (name == null) {
+                continue; // can't be matched with the deployed one
+            }
+            names.add(name);
+
+            final Registration registration = registrations.get(name);
+            if (registration == null) {
+                LOGGER.warning("Bean " + name + " was added to " + url.toExternalForm() + ", it needs a redeployment");
+                continue;
+            }
+            if (!registration.origin.toExternalForm().equals(url.toExternalForm())) {
+                continue; // overridden by another file
+            }
+
+            final ConfigBean current = registration.factory.getModel();
+            if (sameConfiguration(current, bean)) {
+                continue;
+            }
+            if (!sameDefinition(current, bean)) {
+                LOGGER.warning("Type, scope or qualifier of bean " + name + " changed, it needs a redeployment");
+                continue;
+            }
+
+            try {
+                changes.put(name, new Change(registration, bean, registration.factory.prepareRefresh(bean)));
+            } catch (final RuntimeException e) {
+                throw new ConfigurationException("Bean " + name + " of " + url.toExternalForm() + " is invalid, nothing was reloaded", e);
+            }
+        }
+
+        for (final Map.Entry<String, Change> entry : changes.entrySet()) {
+            final String name = entry.getKey();
+            final Change change = entry.getValue();
+            change.refresh.apply();
+            LOGGER.info("Reloaded bean " + name);
+
+            if (!Dependent.class.equals(change.registration.bean.getScope())) {
+                if (strategies.isEmpty()) {
+                    LOGGER.info("Existing instances of " + name + " keep their configuration until their context ends");
+                }
+                for (final RefreshStrategy strategy : strategies) {
+                    strategy.refresh(beanManager, change.registration.bean, change.bean);
+                }
+            }
+        }
+
+        for (final Map.Entry<String, Registration> registration : registrations.entrySet()) {
+            if (!names.contains(registration.getKey()) && registration.getValue().origin.toExternalForm().equals(url.toExternalForm())) {
+                LOGGER.warning("Bean " + registration.getKey() + " was removed from " + url.toExternalForm() + ", it needs a redeployment");
+            }
+        }
+    }
+
+    // what the CDI bean was created from, can't change without a redeployment
+    private static boolean sameDefinition(final ConfigBean a, final ConfigBean b) {
+        return equals(a.getClassname(), b.getClassname())
+            && new ArrayList<String>(a.getTypeParameters()).equals(new ArrayList<String>(b.getTypeParameters()))
+            && equals(a.getScope(), b.getScope())
+            && equals(a.getQualifier(), b.getQualifier());
+    }
+
+    private static boolean sameConfiguration(final ConfigBean a, final ConfigBean b) {
+        return sameDefinition(a, b)
+            && equals(a.getFactoryClass(), b.getFactoryClass())
+            && equals(a.getFactoryMethod(), b.getFactoryMethod())
+            && equals(a.getInitMethod(), b.getInitMethod())
+            && equals(a.getDestroyMethod(), b.getDestroyMethod())
+            && a.isConstructor() == b.isConstructor()
+            && a.getDirectAttributes().equals(b.getDirectAttributes())
+            && a.getRefAttributes().equals(b.getRefAttributes())
+            && new ArrayList<String>(a.getAttributeOrder()).equals(new ArrayList<String>(b.getAttributeOrder()));
+    }
+
+    private static boolean equals(final String a, final String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static class Change {
+        private final Registration registration;
+        private final ConfigBean bean;
+        private final ContextualFactory<?>.Refresh refresh;
+
+        private Change(final Registration registration, final ConfigBean bean, final ContextualFactory<?>.Refresh refresh) {
+            this.registration = registration;
+            this.bean = bean;
+            this.refresh = refresh;
+        }
+    }
+
+    private static class Registration {
+        private final URL origin;
+        private final ContextualFactory<?> factory;
+        private final Bean<?> bean;
+
+        private Registration(final URL origin, final ContextualFactory<?> factory, final Bean<?> bean) {
+            this.origin = origin;
+            this.factory = factory;
+            this.bean = bean;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.rmannibucau.cdi.configuration.reload;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches file based configurations and notifies a listener when one changes.
+ */
+public class ConfigurationWatcher implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger(ConfigurationWatcher.class.getName());
+    private static final long QUIET_PERIOD = 100; // editors often write a file in several steps
+
+    private final Map<Path, URL> files = new HashMap<Path, URL>();
+    private final Map<Path, Long> lastModified = new HashMap<Path, Long>();
+    private final Listener listener;
+    private final ClassLoader loader;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public ConfigurationWatcher(final Collection<URL> urls, final Listener listener, final ClassLoader loader) throws IOException {
+        this.listener = listener;
+        this.loader = loader;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        final Set<Path> directories = new LinkedHashSet<Path>();
+        for (final URL url : urls) {
+            final Path path = toFile(url).toPath().toAbsolutePath();
+            files.put(path, url);
+            lastModified.put(path, path.toFile().lastModified());
+            directories.add(path.getParent());
+        }
+        for (final Path directory : directories) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        }
+
+        thread = new Thread(this, "cdi-light-config-watcher");
+        thread.setDaemon(true);
+    }
+
+    public static boolean isWatchable(final URL url) {
+        return "file".equals(url.getProtocol());
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (final IOException e) {
+            // no-op
+        }
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        final Thread current = Thread.currentThread();
+        current.setContextClassLoader(loader); // parsing and factories rely on it
+
+        final Set<Path> changed = new LinkedHashSet<Path>();
+        while (!current.isInterrupted()) {
+            try {
+                collect(watchService.take(), changed);
+
+                WatchKey next; // coalesce the events of a single save
+                while ((next = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, changed);
+                }
+            } catch (final InterruptedException e) {
+                current.interrupt();
+                break;
+            } catch (final ClosedWatchServiceException e) {
+                break;
+            }
+
+            for (final Path path : changed) {
+                final long modified = path.toFile().lastModified();
+                final Long previous = lastModified.put(path, modified);
+                if (previous != null && previous == modified) {
+                    continue;
+                }
+
+                try {
+                    listener.onChange(files.get(path));
+                } catch (final RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Can't reload " + path, e);
+                }
+            }
+            changed.clear();
+        }
+    }
+
+    private void collect(final WatchKey key, final Set<Path> changed) {
+        final Path directory = Path.class.cast(key.watchable());
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) { // events lost, check all files of this directory
+                for (final Path path : files.keySet()) {
+                    if (directory.equals(path.getParent())) {
+                        changed.add(path);
+                    }
+                }
+                continue;
+            }
+
+            final Path path = directory.resolve(Path.class.cast(event.context()));
+            if (files.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    private static File toFile(final URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (final Exception e) {
+            return new File(url.getFile());
+        }
+    }
+
+    public static interface Listener {
+        void onChange(URL url);
+    }
+}
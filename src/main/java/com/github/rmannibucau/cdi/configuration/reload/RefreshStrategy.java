@@ -0,0 +1,15 @@
+package com.github.rmannibucau.cdi.configuration.reload;
+
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+/**
+ * Registered through ServiceLoader, called when the configuration of a normal scoped bean
+ * changed. New instances use the new configuration but already created ones are still
+ * in their context, this is the hook to refresh or evict them.
+ */
+public interface RefreshStrategy {
+    void refresh(BeanManager beanManager, Bean<?> bean, ConfigBean configuration);
+}
@@ -0,0 +1,10 @@
+package com.github.rmannibucau.cdi.configuration.xml;
+
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+
+public interface ConfigBeanConsumer {
+    /**
+     * @param bean a parsed bean, called when the bean tag is closed
+     */
+    void accept(ConfigBean bean);
+}
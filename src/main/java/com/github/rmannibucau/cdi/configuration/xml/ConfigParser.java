@@ -25,9 +25,13 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 public final class ConfigParser extends DefaultHandler {
     private static final SAXParserFactory FACTORY = SAXParserFactory.newInstance();
+    // parsers are reset and reused, bounded to not keep useless parsers once deployed
+    private static final BlockingQueue<SAXParser> PARSERS = new ArrayBlockingQueue<SAXParser>(Runtime.getRuntime().availableProcessors());
     private static final Map<String, NamespaceHandler> HANDLERS;
     static {
         FACTORY.setNamespaceAware(true);
@@ -59,7 +63,7 @@ public final class ConfigParser extends DefaultHandler {
         static final int REF = 3;
     }
 
-    private Collection<ConfigBean> beans = new ArrayList<ConfigBean>();
+    private final ConfigBeanConsumer consumer;
 
     private int level = 0;
     private ConfigBean bean = null;
@@ -68,8 +72,8 @@ public final class ConfigParser extends DefaultHandler {
     private String defaultQualifier = null;
     private String defaultScope = null;
 
-    private ConfigParser() {
-        // no-op
+    ConfigParser(final ConfigBeanConsumer consumer) {
+        this.consumer = consumer;
     }
 
     @Override
@@ -125,10 +129,7 @@ public final class ConfigParser extends DefaultHandler {
             }
 
             if (level == Level.BEAN) {
-                bean = handler.createBean(localName, attributes);
-                if (bean != null) {
-                    beans.add(bean);
-                }
+                bean = handler.createBean(localName, attributes); // can be null
             } else if (level > Level.BEAN) {
                 handler.decorate(bean, localName, attributes);
             }
@@ -148,11 +149,13 @@ public final class ConfigParser extends DefaultHandler {
     public void endElement(final String uri, final String localName, final String qName) throws SAXException {
         level--;
 
-        if (isDefaultNamespace(uri)) {
-            if (level == Level.BEAN) {
-                beans.add(bean);
-                bean = null;
-            } else if (level == Level.ATTRIBUTE) {
+        if (level == Level.BEAN) { // emitted once complete since handlers can decorate it with nested tags
+            if (bean != null) {
+                consumer.accept(bean);
+            }
+            bean = null;
+        } else if (isDefaultNamespace(uri)) {
+            if (level == Level.ATTRIBUTE) {
                 if (ref == null) {
                     bean.getDirectAttributes().put(localName, text.toString());
                 } else {
@@ -173,11 +176,43 @@ public final class ConfigParser extends DefaultHandler {
     }
 
     public static Collection<ConfigBean> parse(final InputStream is) throws ParserConfigurationException, SAXException, IOException {
-        final ConfigParser handler = new ConfigParser();
-        final SAXParser parser = FACTORY.newSAXParser();
-        parser.parse(is, handler);
-        return handler.beans;
+        final Collection<ConfigBean> beans = new ArrayList<ConfigBean>();
+        parse(is, new ConfigBeanConsumer() {
+            @Override
+            public void accept(final ConfigBean bean) {
+                beans.add(bean);
+            }
+        });
+        return beans;
+    }
+
+    /**
+     * @param is the configuration stream
+     * @param consumer callback called for each bean once its tag is closed
+     */
+    public static void parse(final InputStream is, final ConfigBeanConsumer consumer) throws ParserConfigurationException, SAXException, IOException {
+        SAXParser parser = PARSERS.poll();
+        if (parser == null) {
+            synchronized (FACTORY) { // factories are not thread safe and parsing can be done in parallel
+                parser = FACTORY.newSAXParser();
+            }
+        }
 
+        boolean reusable = false;
+        try {
+            parser.parse(is, new ConfigParser(consumer));
+        } finally {
+            try {
+                parser.reset();
+                reusable = true;
+            } catch (final UnsupportedOperationException uoe) {
+                // no-op: can't be reused
+            }
+        }
+
+        if (reusable) {
+            PARSERS.offer(parser);
+        }
     }
 
     private static NamespaceHandler findHandler(final String uri) {
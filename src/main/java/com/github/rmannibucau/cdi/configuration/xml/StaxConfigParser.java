@@ -0,0 +1,168 @@
+package com.github.rmannibucau.cdi.configuration.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Pull parser alternative to the SAX one, beans are given to the consumer as soon as they are read
+ * so nothing is kept for the whole document.
+ *
+ * It reuses ConfigParser logic so handlers get the same callbacks.
+ */
+public final class StaxConfigParser {
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+    static {
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private StaxConfigParser() {
+        // no-op
+    }
+
+    public static void parse(final InputStream is, final ConfigBeanConsumer consumer) throws XMLStreamException, SAXException {
+        final XMLStreamReader reader;
+        synchronized (FACTORY) {
+            reader = FACTORY.createXMLStreamReader(is);
+        }
+
+        final ConfigParser handler = new ConfigParser(consumer);
+        final StaxAttributes attributes = new StaxAttributes(reader);
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        handler.startElement(uri(reader.getNamespaceURI()), reader.getLocalName(), qName(reader.getPrefix(), reader.getLocalName()), attributes);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        handler.endElement(uri(reader.getNamespaceURI()), reader.getLocalName(), qName(reader.getPrefix(), reader.getLocalName()));
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    default:
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String uri(final String uri) {
+        if (uri == null) {
+            return "";
+        }
+        return uri;
+    }
+
+    private static String qName(final String prefix, final String localName) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        }
+        return prefix + ':' + localName;
+    }
+
+    // view of the current element attributes, only valid during the callback as with SAX
+    private static class StaxAttributes implements Attributes {
+        private final XMLStreamReader reader;
+
+        private StaxAttributes(final XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int getLength() {
+            return reader.getAttributeCount();
+        }
+
+        @Override
+        public String getURI(final int index) {
+            return uri(reader.getAttributeNamespace(index));
+        }
+
+        @Override
+        public String getLocalName(final int index) {
+            return reader.getAttributeLocalName(index);
+        }
+
+        @Override
+        public String getQName(final int index) {
+            return qName(reader.getAttributePrefix(index), reader.getAttributeLocalName(index));
+        }
+
+        @Override
+        public String getType(final int index) {
+            return reader.getAttributeType(index);
+        }
+
+        @Override
+        public String getValue(final int index) {
+            return reader.getAttributeValue(index);
+        }
+
+        @Override
+        public int getIndex(final String uri, final String localName) {
+            for (int i = 0; i < getLength(); i++) {
+                if (getURI(i).equals(uri) && getLocalName(i).equals(localName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int getIndex(final String qName) {
+            for (int i = 0; i < getLength(); i++) {
+                if (getQName(i).equals(qName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(final String uri, final String localName) {
+            final int index = getIndex(uri, localName);
+            if (index < 0) {
+                return null;
+            }
+            return getType(index);
+        }
+
+        @Override
+        public String getType(final String qName) {
+            final int index = getIndex(qName);
+            if (index < 0) {
+                return null;
+            }
+            return getType(index);
+        }
+
+        @Override
+        public String getValue(final String uri, final String localName) {
+            final int index = getIndex(uri, localName);
+            if (index < 0) {
+                return null;
+            }
+            return getValue(index);
+        }
+
+        @Override
+        public String getValue(final String qName) {
+            final int index = getIndex(qName);
+            if (index < 0) {
+                return null;
+            }
+            return getValue(index);
+        }
+    }
+}
@@ -2,12 +2,24 @@ package com.github.rmannibucau.cdi.configuration.xml.handlers;
 
 import com.github.rmannibucau.cdi.configuration.ConfigurationException;
 import com.github.rmannibucau.cdi.configuration.factory.SetterFallback;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
 import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
 import org.xml.sax.Attributes;
 
+import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public class LookupHandler extends NamespaceHandlerSupport {
     @Override
@@ -29,27 +41,207 @@ public class LookupHandler extends NamespaceHandlerSupport {
     }
 
     public static class LookupFactory implements SetterFallback {
+        private static final int MAX_BACKOFF_FACTOR = 32;
+
+        // one state per application, contexts are closed when it is stopped
+        private static final ClassLoaderLocal<Lookups> LOOKUPS = new ClassLoaderLocal<Lookups>() {
+            @Override
+            protected Lookups initialValue(final ClassLoader loader) {
+                return new Lookups();
+            }
+
+            @Override
+            protected void onRelease(final Lookups value) {
+                value.close();
+            }
+        };
+
         private final Properties properties = new Properties();
         private String jndi;
+        private boolean cache = false;
+        private long ttl = 0; // ms, <= 0 means the cached lookup doesn't expire
+        private long backoff = 0; // ms, <= 0 means a failed lookup is retried immediately
 
         public Object create() {
+            final Lookups lookups = LOOKUPS.get();
+            final Map<Object, Object> environment = new HashMap<Object, Object>(properties);
+            final LookupKey key = new LookupKey(environment, jndi);
+            if (!cache) {
+                return lookup(lookups, key);
+            }
+
+            while (true) {
+                final long now = System.currentTimeMillis();
+                final CachedLookup cached = lookups.cached.get(key);
+                if (cached != null && (ttl <= 0 || now < cached.expiresAt)) {
+                    return cached.get(lookups, key);
+                }
+
+                // a single lookup per key, concurrent callers wait for its result
+                final CachedLookup created = new CachedLookup(new FutureTask<Object>(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return lookup(lookups, key);
+                    }
+                }), ttl > 0 ? now + ttl : Long.MAX_VALUE);
+                if (cached == null ? lookups.cached.putIfAbsent(key, created) == null : lookups.cached.replace(key, cached, created)) {
+                    created.task.run();
+                    return created.get(lookups, key);
+                }
+            }
+        }
+
+        private Object lookup(final Lookups lookups, final LookupKey key) {
+            final long now = System.currentTimeMillis();
+            if (backoff > 0) {
+                final Failure failure = lookups.failures.get(key);
+                if (failure != null && now < failure.retryAt) {
+                    throw new ConfigurationException("Lookup of " + jndi + " failed, next try in " + (failure.retryAt - now) + "ms", failure.error);
+                }
+            }
+
+            final Queue<Context> pool = lookups.pool(key.environment);
+            Context context = pool.poll();
+            boolean broken = false;
             try {
-                return context().lookup(jndi);
+                if (context == null) {
+                    context = key.environment.isEmpty() ? new InitialContext() : new InitialContext(new Hashtable<Object, Object>(key.environment));
+                }
+                final Object value = context.lookup(jndi); // the context is not shared while used, InitialContext is not thread safe
+
+                if (backoff > 0) {
+                    lookups.failures.remove(key);
+                }
+                return value;
             } catch (final NamingException e) {
+                broken = true; // can be broken, not put back in the pool
+                if (backoff > 0) {
+                    final Failure previous = lookups.failures.get(key);
+                    final int factor = previous == null ? 1 : Math.min(previous.factor * 2, MAX_BACKOFF_FACTOR);
+                    lookups.failures.put(key, new Failure(e, now + backoff * factor, factor));
+                }
                 throw new ConfigurationException(e);
+            } finally {
+                if (broken) {
+                    close(context);
+                } else if (context != null) {
+                    pool.offer(context);
+                }
             }
         }
 
-        private InitialContext context() throws NamingException {
-            if (properties.isEmpty()) {
-                return new InitialContext();
+        @Override
+        public void set(final String key, final String value) {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static class Lookups {
+        // InitialContext are pooled per environment and lookups (when cache=true) cached per environment and name
+        private final ConcurrentMap<Map<Object, Object>, Queue<Context>> contexts = new ConcurrentHashMap<Map<Object, Object>, Queue<Context>>();
+        private final ConcurrentMap<LookupKey, CachedLookup> cached = new ConcurrentHashMap<LookupKey, CachedLookup>();
+        private final ConcurrentMap<LookupKey, Failure> failures = new ConcurrentHashMap<LookupKey, Failure>();
+
+        private Queue<Context> pool(final Map<Object, Object> environment) {
+            Queue<Context> pool = contexts.get(environment);
+            if (pool == null) {
+                pool = new ConcurrentLinkedQueue<Context>();
+                final Queue<Context> existing = contexts.putIfAbsent(environment, pool);
+                if (existing != null) {
+                    pool = existing;
+                }
             }
-            return new InitialContext(properties);
+            return pool;
+        }
+
+        private void close() {
+            for (final Queue<Context> pool : contexts.values()) {
+                Context context;
+                while ((context = pool.poll()) != null) {
+                    LookupHandler.close(context);
+                }
+            }
+            contexts.clear();
+            cached.clear();
+            failures.clear();
+        }
+    }
+
+    private static void close(final Context context) {
+        if (context == null) {
+            return;
+        }
+        try {
+            context.close();
+        } catch (final NamingException e) {
+            // no-op
+        }
+    }
+
+    private static class LookupKey {
+        private final Map<Object, Object> environment;
+        private final String name;
+        private final int hash;
+
+        private LookupKey(final Map<Object, Object> environment, final String name) {
+            this.environment = environment;
+            this.name = name;
+            this.hash = 31 * environment.hashCode() + (name == null ? 0 : name.hashCode());
         }
 
         @Override
-        public void set(final String key, final String value) {
-            properties.setProperty(key, value);
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!LookupKey.class.isInstance(o)) {
+                return false;
+            }
+            final LookupKey other = LookupKey.class.cast(o);
+            return environment.equals(other.environment) && (name == null ? other.name == null : name.equals(other.name));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class CachedLookup {
+        private final FutureTask<Object> task;
+        private final long expiresAt;
+
+        private CachedLookup(final FutureTask<Object> task, final long expiresAt) {
+            this.task = task;
+            this.expiresAt = expiresAt;
+        }
+
+        private Object get(final Lookups lookups, final LookupKey key) {
+            try {
+                return task.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConfigurationException(e);
+            } catch (final ExecutionException e) {
+                lookups.cached.remove(key, this); // failures are not cached, backoff handles them
+                final Throwable cause = e.getCause();
+                if (RuntimeException.class.isInstance(cause)) {
+                    throw RuntimeException.class.cast(cause);
+                }
+                throw new ConfigurationException(e);
+            }
+        }
+    }
+
+    private static class Failure {
+        private final NamingException error;
+        private final long retryAt;
+        private final int factor;
+
+        private Failure(final NamingException error, final long retryAt, final int factor) {
+            this.error = error;
+            this.retryAt = retryAt;
+            this.factor = factor;
         }
     }
 }
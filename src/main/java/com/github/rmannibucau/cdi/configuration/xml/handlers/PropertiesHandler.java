@@ -1,18 +1,23 @@
 package com.github.rmannibucau.cdi.configuration.xml.handlers;
 
 import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
 import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
 import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+import com.github.rmannibucau.cdi.configuration.properties.CompactMap;
+import com.github.rmannibucau.cdi.configuration.properties.PropertiesScanner;
+import org.apache.deltaspike.core.api.config.ConfigResolver;
 import org.xml.sax.Attributes;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PropertiesHandler extends NamespaceHandlerSupport {
     @Override
@@ -22,50 +27,209 @@ public class PropertiesHandler extends NamespaceHandlerSupport {
 
     @Override
     public ConfigBean createBean(final String localName, final Attributes attributes) {
-        final ConfigBean bean = new ConfigBean(localName, Properties.class.getName(), "dependent", attributes.getValue("qualifier"),
-                                                PropertiesFactory.class.getName(), "create", null, null, false);
+        final boolean map = "map".equalsIgnoreCase(attributes.getValue("type"));
+        final ConfigBean bean = new ConfigBean(localName, map ? Map.class.getName() : Properties.class.getName(), "dependent", attributes.getValue("qualifier"),
+                                                PropertiesFactory.class.getName(), map ? "createMap" : "create", null, null, false);
+        if (map) {
+            bean.getTypeParameters().add(String.class.getName());
+            bean.getTypeParameters().add(String.class.getName());
+        }
         bean.getDirectAttributes().put("path", attributes.getValue("path"));
+        bean.getDirectAttributes().put("mapped", Boolean.toString("true".equalsIgnoreCase(attributes.getValue("mapped"))));
         bean.getDirectAttributes().put("cached", Boolean.toString("true".equalsIgnoreCase(attributes.getValue("cached"))));
+        putIfPresent(bean, attributes, "refresh-interval", "refreshInterval");
         return bean;
     }
 
+    private static void putIfPresent(final ConfigBean bean, final Attributes attributes, final String attribute, final String field) {
+        final String value = attributes.getValue(attribute);
+        if (value != null) {
+            bean.getDirectAttributes().put(field, value);
+        }
+    }
+
     public static class PropertiesFactory {
-        // because it can only be @Dependent we cache it to not read it each time is asked
-        private static final ConcurrentMap<String, Properties> CACHE = new ConcurrentHashMap<String, Properties>();
+        // because it can only be @Dependent we cache it to not read it each time is asked, one cache per application
+        private static final ClassLoaderLocal<PropertiesCache> CACHES = new ClassLoaderLocal<PropertiesCache>() {
+            @Override
+            protected PropertiesCache initialValue(final ClassLoader loader) {
+                return new PropertiesCache(Integer.parseInt(ConfigResolver.getPropertyValue("cdi.config.properties.cache-size", "0")));
+            }
+        };
 
         private boolean cached = false;
+        private boolean mapped = false;
         private String path;
+        private long refreshInterval = 0; // ms, <= 0 means the entry doesn't expire
 
+        /**
+         * @return properties owned by the caller, a copy of the cached values if cached.
+         */
         public Properties create() {
-            Properties props = null;
             if (cached) {
-                props = CACHE.get(path);
+                return copy(cachedValues());
+            }
+            if (mapped) {
+                return copy(loadCompact());
+            }
+            return load(new Properties());
+        }
+
+        /**
+         * @return a read only map of the properties.
+         */
+        public Map<String, String> createMap() {
+            if (cached) {
+                return cachedValues();
+            }
+            return loadValues();
+        }
+
+        private CompactMap cachedValues() {
+            final PropertiesCache cache = CACHES.get();
+            final String key = (mapped ? "mapped:" : "loaded:") + path; // both read the same file but differently
+            final long now = System.currentTimeMillis();
+            final CachedProperties entry = cache.entries.get(key);
+            if (entry != null && entry.isValid(now, refreshInterval)) {
+                entry.lastAccess = now;
+                cache.hits.incrementAndGet();
+                return entry.value;
             }
 
-            if (props == null) {
-                props = new Properties();
+            cache.misses.incrementAndGet();
+            final File file = new File(path);
+            final long lastModified = file.exists() ? file.lastModified() : -1; // before reading to not miss a concurrent update
+            final CompactMap value = loadValues();
+
+            cache.entries.put(key, new CachedProperties(value, lastModified >= 0 ? file : null, lastModified, now));
+            cache.evict();
+            return value;
+        }
+
+        private CompactMap loadValues() {
+            return mapped ? loadCompact() : CompactMap.copyOf(load(new Properties()));
+        }
+
+        private static Properties copy(final Map<String, String> values) {
+            final Properties properties = new Properties();
+            properties.putAll(values);
+            return properties;
+        }
+
+        private CompactMap loadCompact() {
+            final File f = new File(path);
+            if (f.exists()) {
+                return PropertiesScanner.read(f);
+            }
+
+            final InputStream is = findInputStream();
+            try {
+                return PropertiesScanner.read(is);
+            } finally {
                 try {
-                    props.load(findInputStream());
+                    is.close();
                 } catch (final IOException e) {
-                    throw new ConfigurationException(e);
+                    // no-op
                 }
-                if (cached) {
-                    final Properties old = CACHE.putIfAbsent(path, props);
-                    if (old != null) {
-                        return old;
-                    }
-                    return props;
+            }
+        }
+
+        public static long getHits() {
+            return CACHES.get().hits.get();
+        }
+
+        public static long getMisses() {
+            return CACHES.get().misses.get();
+        }
+
+        public static void clearCache() {
+            CACHES.get().entries.clear();
+        }
+
+        private Properties load(final Properties properties) {
+            final InputStream is = findInputStream();
+            try {
+                properties.load(is);
+            } catch (final IOException e) {
+                throw new ConfigurationException(e);
+            } finally {
+                try {
+                    is.close();
+                } catch (final IOException e) {
+                    // no-op
                 }
             }
-            return props;
+            return properties;
         }
 
-        private InputStream findInputStream() throws FileNotFoundException {
+        private InputStream findInputStream() {
             final File f = new File(path);
             if (f.exists()) {
-                return new FileInputStream(f);
+                try {
+                    return new FileInputStream(f);
+                } catch (final IOException e) {
+                    throw new ConfigurationException(e);
+                }
+            }
+
+            final InputStream is = ClassLoaders.tccl().getResourceAsStream(path);
+            if (is == null) {
+                throw new ConfigurationException("Can't find " + path);
+            }
+            return is;
+        }
+    }
+
+    private static class PropertiesCache {
+        private final ConcurrentMap<String, CachedProperties> entries = new ConcurrentHashMap<String, CachedProperties>();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final int maxSize; // <= 0 means unbounded
+
+        private PropertiesCache(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        // the cache is small, a linear scan on insertion is fine and keeps reads lock free
+        private void evict() {
+            if (maxSize <= 0) {
+                return;
+            }
+            while (entries.size() > maxSize) {
+                Map.Entry<String, CachedProperties> eldest = null;
+                for (final Map.Entry<String, CachedProperties> entry : entries.entrySet()) {
+                    if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                entries.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    private static class CachedProperties {
+        private final CompactMap value; // immutable, shared by all callers
+        private final File file; // null for classpath resources
+        private final long lastModified;
+        private final long loadedAt;
+        private volatile long lastAccess;
+
+        private CachedProperties(final CompactMap value, final File file, final long lastModified, final long loadedAt) {
+            this.value = value;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+
+        private boolean isValid(final long now, final long refreshInterval) {
+            if (refreshInterval > 0 && now - loadedAt >= refreshInterval) {
+                return false;
             }
-            return ClassLoaders.tccl().getResourceAsStream(path);
+            return file == null || file.lastModified() == lastModified;
         }
     }
 }
@@ -1,15 +1,27 @@
 package com.github.rmannibucau.cdi.configuration.xml.handlers;
 
 import com.github.rmannibucau.cdi.configuration.ConfigurationException;
-import com.github.rmannibucau.cdi.configuration.loader.ClassLoaders;
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
 import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
 import org.xml.sax.Attributes;
 
 import javax.xml.namespace.QName;
 import javax.xml.ws.Service;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class WebServiceHandler extends NamespaceHandlerSupport {
+    private static final String NEW = "new";
+    private static final String SHARED = "shared";
+    private static final String THREAD = "thread";
+
     @Override
     public String supportedUri() {
         return "webservice";
@@ -19,34 +31,202 @@ public class WebServiceHandler extends NamespaceHandlerSupport {
     public ConfigBean createBean(final String localName, final Attributes attributes) {
         final String interfaceName = attributes.getValue("interface");
 
+        final String mode = attributes.getValue("mode");
+        if (mode != null && !NEW.equalsIgnoreCase(mode) && !SHARED.equalsIgnoreCase(mode) && !THREAD.equalsIgnoreCase(mode)) {
+            throw new ConfigurationException("Unknown webservice mode '" + mode + "' for " + localName + ", use new, shared or thread");
+        }
+
         final ConfigBean bean = new ConfigBean(localName, interfaceName, attributes.getValue("scope"), attributes.getValue("qualifier"), WebServiceFactory.class.getName(), "create", null, null, false);
-        bean.getDirectAttributes().put("interfaceName", interfaceName);
+        bean.getDirectAttributes().put("itf", interfaceName); // a Class is immutable so it is loaded once, not per create()
         bean.getDirectAttributes().put("serviceQName", attributes.getValue("service-qname"));
         bean.getDirectAttributes().put("portQName", attributes.getValue("port-qname"));
         bean.getDirectAttributes().put("url", attributes.getValue("wsdl"));
+        if (mode != null) {
+            bean.getDirectAttributes().put("mode", mode.toLowerCase(Locale.ROOT));
+        }
 
         return bean;
     }
 
     public static class WebServiceFactory<T> {
-        private String interfaceName;
+        // per application to not keep its classes after an undeployment, thread ports are cleared there
+        private static final ClassLoaderLocal<ConcurrentMap<EndpointKey, Endpoint<?>>> ENDPOINTS = new ClassLoaderLocal<ConcurrentMap<EndpointKey, Endpoint<?>>>() {
+            @Override
+            protected ConcurrentMap<EndpointKey, Endpoint<?>> initialValue(final ClassLoader loader) {
+                return new ConcurrentHashMap<EndpointKey, Endpoint<?>>();
+            }
+
+            @Override
+            protected void onRelease(final ConcurrentMap<EndpointKey, Endpoint<?>> value) {
+                for (final Endpoint<?> endpoint : value.values()) {
+                    endpoint.close();
+                }
+                value.clear();
+            }
+        };
+
+        private Class<T> itf;
         private QName serviceQName;
         private QName portQName;
         private URL url;
+        private String mode = NEW;
 
         public T create() {
-            final Service service = Service.create(url, serviceQName);
-            final Class<T> itf;
-            try {
-                itf = (Class<T>) ClassLoaders.tccl().loadClass(interfaceName);
-            } catch (ClassNotFoundException e) {
-                throw new ConfigurationException(e);
+            final Endpoint<T> endpoint = endpoint();
+            if (SHARED.equals(mode)) {
+                return endpoint.shared();
+            }
+            if (THREAD.equals(mode)) {
+                return endpoint.threadPort();
             }
+            return endpoint.newPort();
+        }
 
+        private Endpoint<T> endpoint() {
+            final ConcurrentMap<EndpointKey, Endpoint<?>> endpoints = ENDPOINTS.get();
+            final EndpointKey key = new EndpointKey(itf, url.toExternalForm(), serviceQName, portQName);
+            Endpoint<?> endpoint = endpoints.get(key);
+            if (endpoint == null) {
+                endpoint = new Endpoint<T>(itf, url, serviceQName, portQName);
+                final Endpoint<?> existing = endpoints.putIfAbsent(key, endpoint);
+                if (existing != null) {
+                    endpoint = existing;
+                }
+            }
+            return (Endpoint<T>) endpoint;
+        }
+    }
+
+    private static class Endpoint<T> {
+        private final Class<T> itf;
+        private final URL url;
+        private final QName serviceQName;
+        private final QName portQName;
+        private final ThreadLocal<PortHolder> ports = new ThreadLocal<PortHolder>();
+        // to empty the holders kept by pooled threads when the application stops, weak to not keep dead threads ones
+        private final Set<Reference<PortHolder>> holders = Collections.newSetFromMap(new ConcurrentHashMap<Reference<PortHolder>, Boolean>());
+        private final ReferenceQueue<PortHolder> collectedHolders = new ReferenceQueue<PortHolder>();
+        private volatile Service service; // reading the WSDL is the slow part
+        private volatile T shared;
+
+        private Endpoint(final Class<T> itf, final URL url, final QName serviceQName, final QName portQName) {
+            this.itf = itf;
+            this.url = url;
+            this.serviceQName = serviceQName;
+            this.portQName = portQName;
+        }
+
+        private T newPort() {
+            final Service s = service();
             if (portQName != null) {
-                return service.getPort(portQName, itf);
+                return s.getPort(portQName, itf);
+            }
+            return s.getPort(itf);
+        }
+
+        private T shared() {
+            T port = shared;
+            if (port == null) {
+                synchronized (this) {
+                    port = shared;
+                    if (port == null) {
+                        port = newPort();
+                        shared = port;
+                    }
+                }
+            }
+            return port;
+        }
+
+        private T threadPort() {
+            PortHolder holder = ports.get();
+            if (holder == null) {
+                Reference<? extends PortHolder> collected;
+                while ((collected = collectedHolders.poll()) != null) {
+                    holders.remove(collected);
+                }
+
+                holder = new PortHolder();
+                holders.add(new WeakReference<PortHolder>(holder, collectedHolders));
+                ports.set(holder);
+            }
+
+            Object port = holder.port;
+            if (port == null) {
+                port = newPort();
+                holder.port = port;
+            }
+            return itf.cast(port);
+        }
+
+        private void close() {
+            for (final Reference<PortHolder> reference : holders) {
+                final PortHolder holder = reference.get();
+                if (holder != null) {
+                    holder.port = null;
+                }
             }
-            return service.getPort(itf);
+            holders.clear();
+            shared = null;
+            service = null;
+        }
+
+        private Service service() {
+            Service s = service;
+            if (s == null) {
+                synchronized (this) {
+                    s = service;
+                    if (s == null) {
+                        s = Service.create(url, serviceQName);
+                        service = s;
+                    }
+                }
+            }
+            return s;
+        }
+    }
+
+    // only references library classes so a pooled thread doesn't keep the application once emptied
+    private static class PortHolder {
+        private volatile Object port;
+    }
+
+    private static class EndpointKey {
+        private final Class<?> itf;
+        private final String wsdl;
+        private final QName service;
+        private final QName port;
+
+        private EndpointKey(final Class<?> itf, final String wsdl, final QName service, final QName port) {
+            this.itf = itf;
+            this.wsdl = wsdl;
+            this.service = service;
+            this.port = port;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!EndpointKey.class.isInstance(o)) {
+                return false;
+            }
+            final EndpointKey other = EndpointKey.class.cast(o);
+            return itf == other.itf && wsdl.equals(other.wsdl) && equals(service, other.service) && equals(port, other.port);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = itf.hashCode();
+            result = 31 * result + wsdl.hashCode();
+            result = 31 * result + (service != null ? service.hashCode() : 0);
+            result = 31 * result + (port != null ? port.hashCode() : 0);
+            return result;
+        }
+
+        private static boolean equals(final Object a, final Object b) {
+            return a == null ? b == null : a.equals(b);
         }
     }
 }
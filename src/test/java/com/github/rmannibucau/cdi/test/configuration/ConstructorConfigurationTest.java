@@ -0,0 +1,188 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+import com.github.rmannibucau.cdi.configuration.factory.ObjectFactory;
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(Arquillian.class)
+public class ConstructorConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(ConstructorConfigurationTest.class)
+                    .addClasses(Overloaded.class, Ranked.class, Single.class, CountConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, CountConfigSource.class);
+    }
+
+    @Inject
+    @Named("byType")
+    private Overloaded byType;
+
+    @Inject
+    @Named("byTypeReversed")
+    private Overloaded byTypeReversed;
+
+    @Inject
+    @Named("withReference")
+    private Overloaded withReference;
+
+    @Inject
+    @Named("mostSpecific")
+    private Ranked mostSpecific;
+
+    @Test
+    public void mostSpecific() {
+        assertEquals("string-int", mostSpecific.getValue());
+    }
+
+    @Test
+    public void ambiguous() {
+        try {
+            new ObjectFactory<Object>(bean(Overloaded.class, "count", "1", "name", "2"));
+            fail();
+        } catch (final ConfigurationException ce) {
+            assertThat(ce.getMessage(), containsString("Ambiguous constructors"));
+        }
+    }
+
+    @Test
+    public void conversionErrorIsKept() {
+        try {
+            new ObjectFactory<Object>(bean(Single.class, "count", "not a number"));
+            fail();
+        } catch (final ConfigurationException ce) {
+            assertThat(ce.getCause(), instanceOf(NumberFormatException.class));
+        }
+    }
+
+    @Test
+    public void interpolatedArgument() {
+        final ObjectFactory<Single> factory = new ObjectFactory<Single>(bean(Single.class, "count", "${constructor.count}"));
+        CountConfigSource.count = "4"; // not needed to select the constructor
+        try {
+            assertEquals(4, factory.create().getCount());
+        } finally {
+            CountConfigSource.count = null;
+        }
+    }
+
+    @Test
+    public void overloads() {
+        assertEquals("overloaded/2", byType.getValue());
+        assertEquals("reversed/3/int-first", byTypeReversed.getValue());
+    }
+
+    @Test
+    public void reference() {
+        assertEquals("ref/overloaded/2", withReference.getValue());
+    }
+
+    private static ConfigBean bean(final Class<?> type, final String... attributes) {
+        final ConfigBean bean = new ConfigBean("test", type.getName(), null, null, null, null, null, null, true);
+        for (int i = 0; i < attributes.length; i += 2) {
+            bean.getDirectAttributes().put(attributes[i], attributes[i + 1]);
+            bean.getAttributeOrder().add(attributes[i]);
+        }
+        return bean;
+    }
+
+    public static class Ranked {
+        private final String value;
+
+        public Ranked(final String name, final String count) {
+            this.value = "string-string";
+        }
+
+        public Ranked(final Object name, final int count) {
+            this.value = "object-int";
+        }
+
+        public Ranked(final String name, final int count) {
+            this.value = "string-int";
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class Single {
+        private final int count;
+
+        public Single(final int count) {
+            this.count = count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    public static class Overloaded {
+        private final String value;
+
+        public Overloaded(final int count, final String name) {
+            this.value = name + "/" + count + "/int-first";
+        }
+
+        public Overloaded(final String name, final int count) {
+            this.value = name + "/" + count;
+        }
+
+        public Overloaded(final String name, final Overloaded other) {
+            this.value = name + "/" + other.getValue();
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class CountConfigSource implements ConfigSource {
+        private static volatile String count;
+
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if ("constructor.count".equals(key)) {
+                return count;
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "count";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import com.github.rmannibucau.cdi.configuration.factory.TypeConverter;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(Arquillian.class)
+public class ConverterConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(ConverterConfigurationTest.class)
+                    .addClasses(Converted.class, Money.class, MoneyConverter.class, OverriddenURLConverter.class, BrokenConverter.class)
+                    .addAsServiceProvider(TypeConverter.class, BrokenConverter.class, MoneyConverter.class, OverriddenURLConverter.class);
+    }
+
+    @Inject
+    @Named("converted")
+    private Converted converted;
+
+    @Test
+    public void defaultConverters() {
+        assertNotNull(converted);
+        assertEquals(new BigDecimal("12.50"), converted.decimal);
+        assertEquals(TimeUnit.SECONDS, converted.unit);
+        assertEquals(Charset.forName("UTF-8"), converted.charset);
+        assertEquals(Paths.get("target/foo"), converted.path);
+        assertEquals("a+b", converted.pattern.pattern());
+        assertEquals("localhost", converted.address.getHostName());
+        assertEquals(1234, converted.address.getPort());
+    }
+
+    @Test
+    public void brokenConverterIsSkipped() {
+        assertEquals(5, converted.money.amount); // registered after the broken one
+    }
+
+    @Test
+    public void customConverters() {
+        assertEquals(5, converted.money.amount);
+        assertEquals("USD", converted.money.currency);
+        assertEquals("http://overridden", converted.url.toExternalForm());
+    }
+
+    public static class Converted {
+        private BigDecimal decimal;
+        private TimeUnit unit;
+        private Charset charset;
+        private Path path;
+        private Pattern pattern;
+        private InetSocketAddress address;
+        private Money money;
+        private URL url;
+    }
+
+    public static class Money {
+        private final int amount;
+        private final String currency;
+
+        public Money(final int amount, final String currency) {
+            this.amount = amount;
+            this.currency = currency;
+        }
+    }
+
+    public static class MoneyConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return Money.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            final String[] parts = value.split(" ");
+            return new Money(Integer.parseInt(parts[0]), parts[1]);
+        }
+    }
+
+    public static class OverriddenURLConverter implements TypeConverter {
+        @Override
+        public Class<?> type() {
+            return URL.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            try {
+                return new URL("http://overridden");
+            } catch (final Exception e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    public static class BrokenConverter implements TypeConverter {
+        public BrokenConverter() {
+            throw new IllegalStateException("can't be instantiated");
+        }
+
+        @Override
+        public Class<?> type() {
+            return Money.class;
+        }
+
+        @Override
+        public Object convert(final Type type, final String value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import com.github.rmannibucau.cdi.configuration.index.ConfigIndex;
+import com.github.rmannibucau.cdi.configuration.xml.ConfigParser;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(Arquillian.class)
+public class IndexConfigurationTest {
+    @Deployment
+    public static Archive<?> war() throws Exception {
+        return ShrinkWraps.base(IndexConfigurationTest.class)
+                    .addClasses(Indexed.class)
+                    .addAsResource(new ByteArrayAsset(index()), "cdi-configuration.xml" + ConfigIndex.EXTENSION);
+    }
+
+    // index matching the deployed configuration but with another value to ensure the index is used
+    private static byte[] index() throws Exception {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final long checksum;
+        final InputStream is = loader.getResourceAsStream("test/IndexConfigurationTest.xml");
+        try {
+            checksum = ConfigIndex.checksum(is);
+        } finally {
+            is.close();
+        }
+
+        final String indexed = "<?xml version=\"1.0\"?>\n<cdi-beans><indexed class=\"" + Indexed.class.getName() + "\"><value>from-index</value></indexed></cdi-beans>";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConfigIndex.write(out, checksum, ConfigParser.parse(new ByteArrayInputStream(indexed.getBytes("UTF-8"))));
+        return out.toByteArray();
+    }
+
+    @Inject
+    @Named("indexed")
+    private Indexed indexed;
+
+    @Test
+    public void indexIsUsed() {
+        assertNotNull(indexed);
+        assertEquals("from-index", indexed.getValue());
+    }
+
+    public static class Indexed {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.rmannibucau.cdi.test.configuration;
 
+import com.github.rmannibucau.cdi.configuration.ConfigurationException;
+import com.github.rmannibucau.cdi.configuration.factory.Converter;
 import org.apache.deltaspike.core.spi.config.ConfigSource;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
@@ -9,11 +11,18 @@ import org.junit.runner.RunWith;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.Collections;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 @RunWith(Arquillian.class)
 public class InterpolationConfigurationTest {
@@ -28,12 +37,94 @@ public class InterpolationConfigurationTest {
     @Named("msg")
     private Message message;
 
+    @Inject
+    @Named("embedded")
+    private Message embedded;
+
+    @Inject
+    @Named("defaulted")
+    private Message defaulted;
+
+    @Inject
+    @Named("nested")
+    private Message nested;
+
+    @Inject
+    @Named("unresolved")
+    private Message unresolved;
+
+    @Inject
+    @Named("escaped")
+    private Message escaped;
+
     @Test
     public void interpolate() {
         assertNotNull(message);
         assertEquals("cdi", message.getMessage());
     }
 
+    @Test
+    public void embedded() {
+        assertEquals("jdbc:hsqldb:hsql://localhost:9001/cdi", embedded.getMessage());
+    }
+
+    @Test
+    public void defaultValue() {
+        assertEquals("fallback-cdi", defaulted.getMessage());
+    }
+
+    @Test
+    public void nested() {
+        assertEquals("prod-url", nested.getMessage());
+    }
+
+    @Test
+    public void unresolvedIsKept() {
+        assertEquals("${missing}/cdi", unresolved.getMessage());
+    }
+
+    @Test
+    public void unresolvedCanFail() {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader application = thread.getContextClassLoader();
+        SimpleConfigSource.unresolved = "fail";
+        thread.setContextClassLoader(new URLClassLoader(new URL[0], application)); // settings are read per application
+        try {
+            Converter.convertTo(String.class, "${missing}");
+            fail("unresolved placeholder should fail");
+        } catch (final ConfigurationException e) {
+            assertEquals("No value for ${missing}", e.getMessage());
+        } finally {
+            thread.setContextClassLoader(application);
+            SimpleConfigSource.unresolved = null;
+        }
+        assertEquals("${missing}", Converter.convertTo(String.class, "${missing}"));
+    }
+
+    @Test
+    public void escaped() {
+        assertEquals("${value}=cdi", escaped.getMessage());
+        assertEquals("${a:${b}}", Converter.convertTo(String.class, "$${a:$${b}}"));
+        assertEquals("$$ cdi", Converter.convertTo(String.class, "$$ ${value}"));
+    }
+
+    @Test
+    public void escapedElements() { // elements are not interpolated a second time
+        assertArrayEquals(new String[] { "${value}", "cdi" }, String[].class.cast(Converter.convertTo(String[].class, "$${value},${value}")));
+        assertEquals(asList("${value}", "cdi"), Converter.convertTo(List.class, "$${value},${value}"));
+        assertEquals(singletonMap("k", "${value}"), Converter.convertTo(Map.class, "k=$${value}"));
+    }
+
+    @Test
+    public void resolvedValuesAreInterpolated() {
+        assertEquals("localhost:9001", Converter.convertTo(String.class, "${address}"));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void cycle() {
+        Converter.convertTo(String.class, "${cycle.a}");
+    }
+
     public static class Message {
         private String message;
 
@@ -43,6 +134,21 @@ public class InterpolationConfigurationTest {
     }
 
     public static class SimpleConfigSource implements ConfigSource {
+        private static volatile String unresolved; // cdi.config.interpolation.unresolved
+
+        private final Map<String, String> properties = new HashMap<String, String>();
+
+        public SimpleConfigSource() {
+            properties.put("value", "cdi");
+            properties.put("host", "localhost");
+            properties.put("port", "9001");
+            properties.put("address", "${host}:${port}");
+            properties.put("env", "prod");
+            properties.put("db.prod.url", "prod-url");
+            properties.put("cycle.a", "${cycle.b}");
+            properties.put("cycle.b", "${cycle.a}");
+        }
+
         @Override
         public int getOrdinal() {
             return 0;
@@ -50,15 +156,15 @@ public class InterpolationConfigurationTest {
 
         @Override
         public Map<String, String> getProperties() {
-            return Collections.emptyMap();
+            return properties;
         }
 
         @Override
         public String getPropertyValue(final String key) {
-            if ("value".equals(key)) {
-                return "cdi";
+            if ("cdi.config.interpolation.unresolved".equals(key)) {
+                return unresolved;
             }
-            return null;
+            return properties.get(key);
         }
 
         @Override
@@ -0,0 +1,75 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(Arquillian.class)
+public class LazyConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(LazyConfigurationTest.class)
+                    .addClasses(Lazy.class, LazyConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, LazyConfigSource.class);
+    }
+
+    @Inject
+    @Named("lazy")
+    private Lazy lazy;
+
+    @Test
+    public void lazy() {
+        // "unused" bean has a missing factory so deployment only works since it is never created
+        assertNotNull(lazy);
+        assertEquals("lazy", lazy.getValue());
+    }
+
+    public static class Lazy {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class LazyConfigSource implements ConfigSource {
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if (key.endsWith("LightConfigurationExtension.lazy")) {
+                return "true";
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "lazy";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
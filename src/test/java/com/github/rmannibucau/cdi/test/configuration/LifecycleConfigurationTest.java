@@ -10,14 +10,17 @@ import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 @RunWith(Arquillian.class)
 public class LifecycleConfigurationTest {
     @Deployment
     public static Archive<?> war() {
-        return ShrinkWraps.base(LifecycleConfigurationTest.class).addClasses(Lifecycle.class, LifecycleFactory.class);
+        return ShrinkWraps.base(LifecycleConfigurationTest.class).addClasses(Lifecycle.class, LifecycleFactory.class, EqualLifecycle.class, EqualLifecycleFactory.class, PlainLifecycleFactory.class);
     }
 
     @Inject
@@ -33,6 +36,47 @@ public class LifecycleConfigurationTest {
         doCheckLifecycle("lifecycleFactory");
     }
 
+    @Test
+    public void factoryTrackedByIdentity() {
+        final Bean<Lifecycle> bean = Bean.class.cast(bm.resolve(bm.getBeans("equalFactory")));
+        final CreationalContext<Lifecycle> cc = bm.createCreationalContext(null);
+        final Lifecycle first = Lifecycle.class.cast(bm.getReference(bean, Lifecycle.class, cc));
+        final Lifecycle second = Lifecycle.class.cast(bm.getReference(bean, Lifecycle.class, cc));
+        assertEquals(first, second); // equals() can't be used to find the factory back
+
+        bean.destroy(first, cc);
+        assertEquals(1, first.getState());
+        assertEquals(0, second.getState());
+
+        bean.destroy(second, cc);
+        assertEquals(1, second.getState());
+    }
+
+    @Test
+    public void factoryWithoutDestroyIsNotTracked() throws Exception {
+        final Bean<Lifecycle> bean = Bean.class.cast(bm.resolve(bm.getBeans("plainFactory")));
+        final Reference<Lifecycle> reference = new WeakReference<Lifecycle>(bean.create(bm.<Lifecycle>createCreationalContext(null)));
+        for (int i = 0; i < 50 && reference.get() != null; i++) { // the factory references its product, nothing must keep it
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void undestroyedFactoryInstanceIsReleased() throws Exception {
+        final Bean<Lifecycle> bean = Bean.class.cast(bm.resolve(bm.getBeans("equalFactory")));
+        final Reference<Lifecycle> reference = new WeakReference<Lifecycle>(bean.create(bm.<Lifecycle>createCreationalContext(null)));
+        for (int i = 0; i < 50 && reference.get() != null; i++) { // the factory to destroy references its product
+            System.gc();
+            Thread.sleep(20);
+
+            final CreationalContext<Lifecycle> cc = bm.createCreationalContext(null); // stale entries are purged on access
+            bean.destroy(bean.create(cc), cc);
+        }
+        assertNull(reference.get());
+    }
+
     private void doCheckLifecycle(final String name) {
         final Bean<Lifecycle> bean = Bean.class.cast(bm.resolve(bm.getBeans(name)));
         final CreationalContext<Lifecycle> cc = bm.createCreationalContext(null);
@@ -74,4 +118,36 @@ public class LifecycleConfigurationTest {
             return instance;
         }
     }
+
+    public static class EqualLifecycle extends Lifecycle {
+        @Override
+        public boolean equals(final Object o) {
+            return EqualLifecycle.class.isInstance(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    public static class PlainLifecycleFactory {
+        private final Lifecycle instance = new Lifecycle();
+
+        public Lifecycle create() {
+            return instance;
+        }
+    }
+
+    public static class EqualLifecycleFactory {
+        private final Lifecycle instance = new EqualLifecycle();
+
+        public void destroyFactory() {
+            instance.destroy();
+        }
+
+        public Lifecycle create() {
+            return instance;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.github.rmannibucau.cdi.test.configuration;
 
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.shrinkwrap.api.Archive;
@@ -7,29 +8,146 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import javax.ejb.Singleton;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.spi.InitialContextFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 @RunWith(Arquillian.class)
 public class LookupConfigurationTest {
     @Deployment
     public static Archive<?> war() {
-        return ShrinkWraps.base(LookupConfigurationTest.class).addClass(MyService.class);
+        return ShrinkWraps.base(LookupConfigurationTest.class).addClasses(MyService.class, ThrowingContextFactory.class);
     }
 
     @Inject
     @Named("service")
     private MyService service;
 
+    @Inject
+    @Named("cachedService")
+    private MyService cached1;
+
+    @Inject
+    @Named("cachedService")
+    private MyService cached2;
+
+    @Inject
+    private BeanManager bm;
+
+    @Test
+    public void cached() {
+        assertEquals("ok", cached1.ok());
+        assertSame(cached1, cached2);
+    }
+
+    @Test
+    public void concurrentCachedLookups() throws Exception {
+        final Bean<?> bean = bm.resolve(bm.getBeans("concurrentService"));
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            final Collection<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 32; i++) {
+                results.add(pool.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return bm.getReference(bean, MyService.class, bm.createCreationalContext(bean));
+                    }
+                }));
+            }
+            final Object first = results.iterator().next().get();
+            for (final Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void releasedApplicationLooksUpAgain() {
+        final Bean<?> bean = bm.resolve(bm.getBeans("service"));
+        assertEquals("ok", MyService.class.cast(bm.getReference(bean, MyService.class, bm.createCreationalContext(bean))).ok());
+        ClassLoaderLocal.release(Thread.currentThread().getContextClassLoader()); // closes pooled contexts
+        assertEquals("ok", MyService.class.cast(bm.getReference(bean, MyService.class, bm.createCreationalContext(bean))).ok());
+    }
+
+    @Test
+    public void backoff() {
+        final Bean<?> bean = bm.resolve(bm.getBeans("missing"));
+        assertNull(failureMessage(bean, "next try")); // real lookup
+        assertNotNull(failureMessage(bean, "next try")); // naming service not called
+    }
+
+    @Test
+    public void contextIsPooledAfterARuntimeException() {
+        final Bean<?> bean = bm.resolve(bm.getBeans("throwing"));
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(failureMessage(bean, "not a naming exception"));
+        }
+        assertEquals(1, ThrowingContextFactory.CREATED.get());
+    }
+
+    private String failureMessage(final Bean<?> bean, final String text) {
+        try {
+            bm.getReference(bean, MyService.class, bm.createCreationalContext(bean));
+            fail();
+        } catch (final RuntimeException e) {
+            Throwable current = e;
+            while (current != null) {
+                if (current.getMessage() != null && current.getMessage().contains(text)) {
+                    return current.getMessage();
+                }
+                current = current.getCause();
+            }
+        }
+        return null;
+    }
+
     @Test
     public void service() {
         assertNotNull(service);
         assertEquals("ok", service.ok());
     }
 
+    public static class ThrowingContextFactory implements InitialContextFactory {
+        private static final AtomicInteger CREATED = new AtomicInteger();
+
+        @Override
+        public Context getInitialContext(final Hashtable<?, ?> environment) throws NamingException {
+            CREATED.incrementAndGet();
+            return Context.class.cast(Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), new Class<?>[] { Context.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                    if ("lookup".equals(method.getName())) {
+                        throw new IllegalStateException("not a naming exception");
+                    }
+                    return null;
+                }
+            }));
+        }
+    }
+
     @Singleton
     public static class MyService {
         public String ok() {
@@ -13,7 +13,9 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -30,6 +32,10 @@ public class MapListArrayConfigurationTest {
     @Named("array")
     private ArrayBean array;
 
+    @Inject
+    @Named("primitives")
+    private PrimitiveArraysBean primitives;
+
     @Inject
     @Named("list")
     private ListBean list;
@@ -51,6 +57,19 @@ public class MapListArrayConfigurationTest {
         }
     }
 
+    @Test
+    public void primitiveArrays() {
+        assertNotNull(primitives);
+        assertArrayEquals(new int[] { 100, -200, 400, Integer.MAX_VALUE }, primitives.ints);
+        assertArrayEquals(new long[] { Long.MIN_VALUE, 0, 30000000000L }, primitives.longs);
+        assertArrayEquals(new double[] { 0.5, 0.99, 1e3 }, primitives.doubles, 0.);
+        assertArrayEquals(new byte[] { -128, 0, 127 }, primitives.bytes);
+        assertArrayEquals(new char[] { 'a', ' ', 'z' }, primitives.chars);
+        assertTrue(primitives.booleans[0]);
+        assertFalse(primitives.booleans[1]);
+        assertTrue(primitives.booleans[2]);
+    }
+
     @Test
     public void list() {
         assertNotNull(list);
@@ -90,6 +109,15 @@ public class MapListArrayConfigurationTest {
         }
     }
 
+    public static class PrimitiveArraysBean {
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+        private byte[] bytes;
+        private char[] chars;
+        private boolean[] booleans;
+    }
+
     public static class ListBean {
         private List<Integer> list;
 
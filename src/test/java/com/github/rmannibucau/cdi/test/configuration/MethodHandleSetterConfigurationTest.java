@@ -0,0 +1,130 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import com.github.rmannibucau.cdi.configuration.factory.ObjectFactory;
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(Arquillian.class)
+public class MethodHandleSetterConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(MethodHandleSetterConfigurationTest.class)
+                    .addClasses(Handles.class, MethodHandleConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, MethodHandleConfigSource.class);
+    }
+
+    @Inject
+    @Named("handles")
+    private Handles handles;
+
+    @Test
+    public void fieldsAndSetters() {
+        assertNotNull(handles);
+        assertEquals("field", handles.getField());
+        assertEquals(5, handles.getPrimitive());
+        assertEquals("setter!", handles.getValue());
+        assertEquals(asList(1, 2, 3), handles.getList());
+    }
+
+    @Test
+    public void methodHandlesAreUsed() { // surefire doesn't reuse forks so ObjectFactory reads this test ConfigSource
+        assertEquals(ObjectFactory.class.getName() + "$MethodHandleSetter", handles.getSetterCaller());
+        assertEquals(ObjectFactory.class.getName() + "$MethodHandleInvoker", handles.getInitCaller());
+    }
+
+    public static class Handles {
+        private String field;
+        private int primitive;
+        private String value;
+        private List<Integer> list;
+        private String setterCaller;
+        private String initCaller;
+
+        private void setSetter(final String setter) {
+            this.value = setter + "!";
+            this.setterCaller = caller();
+        }
+
+        private void init() {
+            this.initCaller = caller();
+        }
+
+        // the ObjectFactory setter/invoker implementation calling this instance
+        private static String caller() {
+            for (final StackTraceElement element : new Exception().getStackTrace()) {
+                if (element.getClassName().startsWith(ObjectFactory.class.getName() + "$")) {
+                    return element.getClassName();
+                }
+            }
+            return null;
+        }
+
+        public String getSetterCaller() {
+            return setterCaller;
+        }
+
+        public String getInitCaller() {
+            return initCaller;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public int getPrimitive() {
+            return primitive;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public List<Integer> getList() {
+            return list;
+        }
+    }
+
+    public static class MethodHandleConfigSource implements ConfigSource {
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if ("cdi.config.setters".equals(key)) {
+                return "method-handle";
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "method-handle";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Arquillian.class)
+public class MetricsConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(MetricsConfigurationTest.class)
+                    .addClasses(Measured.class, MetricsConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, MetricsConfigSource.class);
+    }
+
+    @Inject
+    private BeanManager bm;
+
+    @Test
+    public void startup() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = findName(server, "type=StartupMetrics");
+        assertEquals(1, server.getAttribute(name, "ConfigurationCount"));
+        assertEquals(1, server.getAttribute(name, "BeanCount"));
+        assertEquals(1, String[].class.cast(server.getAttribute(name, "SlowestBeans")).length);
+    }
+
+    @Test
+    public void runtime() throws Exception {
+        final Bean<Measured> bean = Bean.class.cast(bm.resolve(bm.getBeans("measured")));
+        final CreationalContext<Measured> cc = bm.createCreationalContext(bean);
+        final Measured first = Measured.class.cast(bm.getReference(bean, Measured.class, cc));
+        assertEquals("measured", first.getValue());
+        assertEquals("measured", Measured.class.cast(bm.getReference(bean, Measured.class, cc)).getValue());
+        bean.destroy(first, cc);
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = findName(server, "type=BeanMetrics,bean=\"measured\"");
+        assertEquals(2L, server.getAttribute(name, "Created"));
+        assertEquals(1L, server.getAttribute(name, "Destroyed"));
+        assertEquals(1L, server.getAttribute(name, "Live"));
+        assertEquals(0L, server.getAttribute(name, "Failures"));
+    }
+
+    private static ObjectName findName(final MBeanServer server, final String keys) throws Exception {
+        final Set<ObjectName> names = server.queryNames(new ObjectName("com.github.rmannibucau.cdi.configuration:" + keys + ",*"), null);
+        assertEquals(1, names.size());
+
+        final ObjectName name = names.iterator().next();
+        final String expectedName = "cdi-light-config-" + Integer.toHexString(System.identityHashCode(Thread.currentThread().getContextClassLoader()));
+        assertEquals(expectedName, name.getKeyProperty("name")); // default name is unique per application
+        return name;
+    }
+
+    public static class Measured {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class MetricsConfigSource implements ConfigSource {
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if (key.endsWith("LightConfigurationExtension.metrics") || key.endsWith("LightConfigurationExtension.runtime-metrics")) {
+                return "true";
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "metrics";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
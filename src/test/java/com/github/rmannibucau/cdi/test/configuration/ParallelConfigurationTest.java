@@ -0,0 +1,85 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.ClassLoaderAsset;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(Arquillian.class)
+public class ParallelConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(ParallelConfigurationTest.class)
+                    .addClasses(Value.class, ParallelConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, ParallelConfigSource.class)
+                    // the test classpath provides another parallel/cdi-configuration.xml
+                    .addAsResource(new ClassLoaderAsset("test/ParallelConfigurationTest.xml"), "parallel/cdi-configuration.xml");
+    }
+
+    @Inject
+    @Named("first")
+    private Value first;
+
+    @Inject
+    @Named("second")
+    private Value second;
+
+    @Test
+    public void allFilesAreRead() {
+        assertNotNull(first);
+        assertEquals("first", first.getValue());
+        assertEquals("second", second.getValue());
+    }
+
+    public static class Value {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class ParallelConfigSource implements ConfigSource {
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if (key.endsWith("LightConfigurationExtension.parallel")) {
+                return "true";
+            }
+            if (key.endsWith("LightConfigurationExtension.path")) {
+                return "parallel/cdi-configuration.xml";
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "parallel";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
@@ -9,10 +9,17 @@ import org.junit.runner.RunWith;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 @RunWith(Arquillian.class)
 public class PropertiesConfigurationTest {
@@ -25,6 +32,86 @@ public class PropertiesConfigurationTest {
     @Named("props")
     private Properties props;
 
+    @Inject
+    @Named("cachedProps")
+    private Properties cached1;
+
+    @Inject
+    @Named("cachedProps")
+    private Properties cached2;
+
+    @Inject
+    @Named("cachedMap")
+    private Map<String, String> cachedMap;
+
+    @Inject
+    @Named("cachedMappedMap")
+    private Map<String, String> cachedMappedMap;
+
+    @Test
+    public void cached() {
+        assertEquals("b", cached1.getProperty("a"));
+        assertEquals(cached1, cached2);
+    }
+
+    @Test
+    public void cachedPropertiesAreCopies() {
+        assertNotSame(cached1, cached2);
+        cached1.setProperty("c", "d");
+        assertNull(cached2.getProperty("c"));
+    }
+
+    @Test
+    public void cachedMapIsReadOnly() {
+        assertEquals("b", cachedMap.get("a"));
+        try {
+            cachedMap.put("c", "d");
+            fail();
+        } catch (final UnsupportedOperationException uoe) {
+            // ok
+        }
+        try {
+            cachedMap.entrySet().iterator().next().setValue("c");
+            fail();
+        } catch (final UnsupportedOperationException uoe) {
+            // ok
+        }
+        assertEquals("b", cachedMap.get("a"));
+    }
+
+    @Test
+    public void cacheKeyIncludesMode() {
+        assertEquals(cachedMap, cachedMappedMap);
+        assertNotSame(cachedMap, cachedMappedMap);
+    }
+
+    @Inject
+    @Named("mappedProps")
+    private Properties mapped;
+
+    @Inject
+    @Named("mappedMap")
+    private Map<String, String> mappedMap;
+
+    @Test
+    public void mapped() throws IOException {
+        final Properties expected = new Properties();
+        final InputStream is = new FileInputStream("target/test-classes/test/PropertiesConfigurationTest.properties");
+        try {
+            expected.load(is);
+        } finally {
+            is.close();
+        }
+
+        assertEquals(expected, mapped); // a real Hashtable
+        assertEquals(expected.size(), mapped.size());
+        assertEquals(expected.size(), mappedMap.size());
+        for (final String key : expected.stringPropertyNames()) {
+            assertEquals(key, expected.getProperty(key), mapped.getProperty(key));
+            assertEquals(key, expected.getProperty(key), mappedMap.get(key));
+        }
+    }
+
     @Test
     public void service() {
         assertNotNull(props);
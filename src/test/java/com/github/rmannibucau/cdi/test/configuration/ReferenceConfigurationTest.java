@@ -0,0 +1,153 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Default;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(Arquillian.class)
+public class ReferenceConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(ReferenceConfigurationTest.class, EmptyAsset.INSTANCE, CountingExtension.class)
+                    .addClasses(Target.class, Holder.class, CountingExtension.class, CountingBean.class);
+    }
+
+    @Inject
+    @Named("holder")
+    private Instance<Holder> holders;
+
+    @Test
+    public void references() {
+        final Holder first = holders.get();
+        final Holder second = holders.get();
+
+        // normal scoped reference is resolved once and shared
+        assertSame(first.shared, second.shared);
+        assertEquals(first.shared.getId(), second.shared.getId());
+
+        // dependent reference is a new instance each time
+        assertNotSame(first.dependent, second.dependent);
+    }
+
+    @Test
+    public void normalScopedReferenceIsResolvedOnce() {
+        holders.get(); // first use resolves the references
+        final int reads = CountingBean.READS.get();
+        for (int i = 0; i < 5; i++) {
+            assertSame(Target.class, holders.get().counted.getClass().getSuperclass()); // client proxy
+        }
+        assertEquals(reads, CountingBean.READS.get());
+    }
+
+    public static class Target {
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        private final int id = IDS.incrementAndGet();
+
+        public int getId() {
+            return id;
+        }
+    }
+
+    public static class Holder {
+        private Target shared;
+        private Target dependent;
+        private Target counted;
+    }
+
+    public static class CountingExtension implements Extension {
+        void addBean(final @Observes AfterBeanDiscovery abd) {
+            abd.addBean(new CountingBean());
+        }
+    }
+
+    // application scoped bean counting how often its metadata are read, i.e. how often it is resolved
+    public static class CountingBean implements Bean<Target> {
+        private static final AtomicInteger READS = new AtomicInteger();
+
+        @Override
+        public Set<Type> getTypes() {
+            return new HashSet<Type>(Arrays.<Type>asList(Target.class, Object.class));
+        }
+
+        @Override
+        public Set<Annotation> getQualifiers() {
+            return new HashSet<Annotation>(Arrays.<Annotation>asList(new AnnotationLiteral<Default>() {}, new AnnotationLiteral<Any>() {}));
+        }
+
+        @Override
+        public Class<? extends Annotation> getScope() {
+            READS.incrementAndGet();
+            return ApplicationScoped.class;
+        }
+
+        @Override
+        public String getName() {
+            READS.incrementAndGet();
+            return "counted";
+        }
+
+        @Override
+        public Set<Class<? extends Annotation>> getStereotypes() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Class<?> getBeanClass() {
+            return Target.class;
+        }
+
+        @Override
+        public boolean isAlternative() {
+            return false;
+        }
+
+        @Override
+        public boolean isNullable() {
+            return false;
+        }
+
+        @Override
+        public Set<InjectionPoint> getInjectionPoints() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Target create(final CreationalContext<Target> context) {
+            return new Target();
+        }
+
+        @Override
+        public void destroy(final Target instance, final CreationalContext<Target> context) {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import com.github.rmannibucau.cdi.configuration.factory.ResolvedProperties;
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Arquillian.class)
+public class ResolvedPropertiesConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(ResolvedPropertiesConfigurationTest.class)
+                    .addClasses(Message.class, MutableConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, MutableConfigSource.class);
+    }
+
+    @Inject
+    private BeanManager bm;
+
+    @Test
+    public void cachedUntilInvalidated() {
+        MutableConfigSource.PROPERTIES.put("resolved.cached", "v1");
+        assertTrue(ResolvedProperties.isEnabled());
+        assertEquals("v1", lookup("cached").getMessage());
+
+        MutableConfigSource.PROPERTIES.put("resolved.cached", "v2");
+        assertEquals("v1", lookup("cached").getMessage());
+        assertEquals(1, MutableConfigSource.LOOKUPS.get());
+
+        ResolvedProperties.invalidate("resolved.cached");
+        assertEquals("v2", lookup("cached").getMessage());
+    }
+
+    @Test
+    public void refreshNotifiesListeners() {
+        MutableConfigSource.PROPERTIES.put("resolved.notified", "a");
+        assertEquals("a", lookup("notified").getMessage());
+
+        final Collection<String> changes = new CopyOnWriteArrayList<String>();
+        final ResolvedProperties.Listener listener = new ResolvedProperties.Listener() {
+            @Override
+            public void onChange(final String key, final String oldValue, final String newValue) {
+                changes.add(key + ":" + oldValue + "->" + newValue);
+            }
+        };
+        ResolvedProperties.addListener(listener);
+        try {
+            MutableConfigSource.PROPERTIES.put("resolved.notified", "b");
+            ResolvedProperties.refresh();
+            assertEquals(asList("resolved.notified:a->b"), changes);
+            assertEquals("b", lookup("notified").getMessage());
+        } finally {
+            ResolvedProperties.removeListener(listener);
+        }
+    }
+
+    @Test
+    public void stateIsScopedToTheApplication() {
+        MutableConfigSource.PROPERTIES.put("resolved.scoped", "a");
+        assertEquals("a", lookup("scoped").getMessage());
+
+        final Collection<String> changes = new CopyOnWriteArrayList<String>();
+        final Thread thread = Thread.currentThread();
+        final ClassLoader application = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[0], application));
+        try { // another deployment
+            ResolvedProperties.addListener(new ResolvedProperties.Listener() {
+                @Override
+                public void onChange(final String key, final String oldValue, final String newValue) {
+                    changes.add(key);
+                }
+            });
+            ResolvedProperties.invalidateAll();
+        } finally {
+            thread.setContextClassLoader(application);
+        }
+
+        MutableConfigSource.PROPERTIES.put("resolved.scoped", "b");
+        assertEquals("a", lookup("scoped").getMessage());
+        ResolvedProperties.refresh();
+        assertTrue(changes.isEmpty());
+        assertEquals("b", lookup("scoped").getMessage());
+    }
+
+    private Message lookup(final String name) {
+        final Bean<?> bean = bm.resolve(bm.getBeans(name));
+        return Message.class.cast(bm.getReference(bean, Message.class, bm.createCreationalContext(bean)));
+    }
+
+    public static class Message {
+        private String message;
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public static class MutableConfigSource implements ConfigSource {
+        private static final Map<String, String> PROPERTIES = new ConcurrentHashMap<String, String>();
+        private static final AtomicInteger LOOKUPS = new AtomicInteger();
+
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if ("cdi.config.interpolation.cache".equals(key)) {
+                return "true";
+            }
+            if ("resolved.cached".equals(key)) {
+                LOOKUPS.incrementAndGet();
+            }
+            return PROPERTIES.get(key);
+        }
+
+        @Override
+        public String getConfigName() {
+            return "mutable";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
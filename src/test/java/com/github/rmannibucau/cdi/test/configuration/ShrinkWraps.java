@@ -14,10 +14,19 @@ import static org.apache.ziplock.JarLocation.jarLocation;
 
 public abstract class ShrinkWraps {
     public static WebArchive base(final Class<?> name, final Asset beansXml) {
+        return base(name, beansXml, new Class<?>[0]);
+    }
+
+    // additional extensions have to be added here, a second Extension service file would be ignored
+    public static WebArchive base(final Class<?> name, final Asset beansXml, final Class<?>... extensions) {
+        final Class<?>[] allExtensions = new Class<?>[extensions.length + 1];
+        allExtensions[0] = LightConfigurationExtension.class;
+        System.arraycopy(extensions, 0, allExtensions, 1, extensions.length);
+
         return ShrinkWrap.create(WebArchive.class, name.getSimpleName() + ".war")
             // extension
             .addPackages(true, LightConfigurationExtension.class.getPackage().getName())
-            .addAsServiceProvider(Extension.class, LightConfigurationExtension.class)
+            .addAsServiceProvider(Extension.class, allExtensions)
                 // dependencies
             .addAsLibraries(jarLocation(BeanProvider.class))
                 // default behavior: activate CDI = add cdi-configuration.xml from test name
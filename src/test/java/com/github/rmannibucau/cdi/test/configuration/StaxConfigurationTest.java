@@ -0,0 +1,95 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(Arquillian.class)
+public class StaxConfigurationTest {
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(StaxConfigurationTest.class)
+                    .addClasses(Holder.class, Inline.class, StaxConfigSource.class)
+                    .addAsServiceProvider(ConfigSource.class, StaxConfigSource.class);
+    }
+
+    @Inject
+    @Named("holder")
+    private Holder holder;
+
+    @Inject
+    @Named("numbers")
+    private List<Integer> numbers;
+
+    @Test
+    public void parsed() {
+        assertNotNull(holder);
+        assertEquals("text", holder.getText());
+        assertEquals("inline", holder.getInline().getValue());
+        assertEquals(asList(0, 2, 4), numbers);
+    }
+
+    public static class Holder {
+        private String text;
+        private Inline inline;
+
+        public String getText() {
+            return text;
+        }
+
+        public Inline getInline() {
+            return inline;
+        }
+    }
+
+    public static class Inline {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class StaxConfigSource implements ConfigSource {
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if (key.endsWith("LightConfigurationExtension.parser")) {
+                return "stax";
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "stax";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
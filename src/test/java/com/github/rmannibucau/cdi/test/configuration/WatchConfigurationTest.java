@@ -0,0 +1,211 @@
+package com.github.rmannibucau.cdi.test.configuration;
+
+import com.github.rmannibucau.cdi.configuration.model.ConfigBean;
+import com.github.rmannibucau.cdi.configuration.reload.ConfigurationWatcher;
+import com.github.rmannibucau.cdi.configuration.reload.RefreshStrategy;
+import org.apache.deltaspike.core.spi.config.ConfigSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Arquillian.class)
+public class WatchConfigurationTest {
+    private static final String CONFIGURATION = "test/WatchConfigurationTest.xml"; // file on the test classpath, not the war one
+
+    @Deployment
+    public static Archive<?> war() {
+        return ShrinkWraps.base(WatchConfigurationTest.class)
+                    .addClasses(Watched.class, WatchConfigSource.class, RecordingStrategy.class)
+                    .addAsServiceProvider(ConfigSource.class, WatchConfigSource.class)
+                    .addAsServiceProvider(RefreshStrategy.class, RecordingStrategy.class);
+    }
+
+    @Inject
+    private BeanManager bm;
+
+    @Test
+    public void reload() throws Exception {
+        assertEquals("before", lookup("watched").getValue());
+
+        @SuppressWarnings("unchecked") // resolved from the bean name, the type is the configured class
+        final Bean<Watched> destroyed = (Bean<Watched>) bm.resolve(bm.getBeans("destroyed"));
+        final CreationalContext<Watched> beforeContext = bm.createCreationalContext(destroyed);
+        final Watched before = destroyed.create(beforeContext);
+
+        final File file = new File(Thread.currentThread().getContextClassLoader().getResource(CONFIGURATION).toURI());
+        final byte[] original = read(file);
+        try {
+            write(file, new String(original, "UTF-8").replace("before", "after").getBytes("UTF-8"));
+
+            final long end = System.currentTimeMillis() + 30000;
+            while (!"after".equals(lookup("watched").getValue()) && System.currentTimeMillis() < end) {
+                Thread.sleep(100);
+            }
+            assertEquals("after", lookup("watched").getValue());
+
+            while (!RecordingStrategy.REFRESHED.contains("applicationWatched") && System.currentTimeMillis() < end) {
+                Thread.sleep(100);
+            }
+            assertTrue(RecordingStrategy.REFRESHED.contains("applicationWatched"));
+            assertEquals(1, RecordingStrategy.REFRESHED.size()); // dependent bean doesn't need any strategy
+
+            // instances are destroyed with the configuration they were created with
+            final CreationalContext<Watched> afterContext = bm.createCreationalContext(destroyed);
+            final Watched after = destroyed.create(afterContext);
+            destroyed.destroy(before, beforeContext);
+            assertEquals(asList("before"), Watched.DESTROYED);
+            destroyed.destroy(after, afterContext);
+            assertEquals(asList("before", "after"), Watched.DESTROYED);
+
+            // an invalid bean (no matching constructor) rejects the whole file, even beans declared before it
+            final Collection<LogRecord> failures = new CopyOnWriteArrayList<LogRecord>();
+            final Handler handler = new Handler() {
+                @Override
+                public void publish(final LogRecord record) {
+                    if (record.getMessage().startsWith("Can't reload")) {
+                        failures.add(record);
+                    }
+                }
+
+                @Override
+                public void flush() {
+                    // no-op
+                }
+
+                @Override
+                public void close() throws SecurityException {
+                    // no-op
+                }
+            };
+            final Logger logger = Logger.getLogger(ConfigurationWatcher.class.getName());
+            logger.addHandler(handler);
+            try {
+                write(file, new String(original, "UTF-8").replace("before", "again")
+                        .replace("<destroyed ", "<destroyed use-constructor=\"true\" ").getBytes("UTF-8"));
+                while (failures.isEmpty() && System.currentTimeMillis() < end) {
+                    Thread.sleep(100);
+                }
+                assertFalse(failures.isEmpty());
+                assertEquals("after", lookup("watched").getValue());
+                assertEquals(1, RecordingStrategy.REFRESHED.size());
+            } finally {
+                logger.removeHandler(handler);
+            }
+        } finally {
+            write(file, original);
+        }
+    }
+
+    private Watched lookup(final String name) {
+        final Bean<?> bean = bm.resolve(bm.getBeans(name));
+        return Watched.class.cast(bm.getReference(bean, Watched.class, bm.createCreationalContext(bean)));
+    }
+
+    private static byte[] read(final File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final InputStream is = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                read += is.read(bytes, read, bytes.length - read);
+            }
+        } finally {
+            is.close();
+        }
+        return bytes;
+    }
+
+    private static void write(final File file, final byte[] bytes) throws IOException {
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+    }
+
+    public static class Watched {
+        private static final Collection<String> DESTROYED = new CopyOnWriteArrayList<String>();
+
+        private String value;
+
+        public void before() {
+            DESTROYED.add("before");
+        }
+
+        public void after() {
+            DESTROYED.add("after");
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class RecordingStrategy implements RefreshStrategy {
+        private static final Collection<String> REFRESHED = new CopyOnWriteArrayList<String>();
+
+        @Override
+        public void refresh(final BeanManager beanManager, final Bean<?> bean, final ConfigBean configuration) {
+            REFRESHED.add(bean.getName());
+        }
+    }
+
+    public static class WatchConfigSource implements ConfigSource {
+        @Override
+        public int getOrdinal() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getPropertyValue(final String key) {
+            if (key.endsWith("LightConfigurationExtension.path")) {
+                return CONFIGURATION;
+            }
+            if (key.endsWith("LightConfigurationExtension.watch")) {
+                return "true";
+            }
+            return null;
+        }
+
+        @Override
+        public String getConfigName() {
+            return "watch";
+        }
+
+        @Override
+        public boolean isScannable() {
+            return false;
+        }
+    }
+}
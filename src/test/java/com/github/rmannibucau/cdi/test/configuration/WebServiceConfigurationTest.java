@@ -1,5 +1,6 @@
 package com.github.rmannibucau.cdi.test.configuration;
 
+import com.github.rmannibucau.cdi.configuration.loader.ClassLoaderLocal;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.shrinkwrap.api.Archive;
@@ -7,12 +8,19 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import javax.ejb.Singleton;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.jws.WebService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 @RunWith(Arquillian.class)
 public class WebServiceConfigurationTest {
@@ -26,6 +34,50 @@ public class WebServiceConfigurationTest {
     @Named("myWs")
     private WS ws;
 
+    @Inject
+    @Named("sharedWs")
+    private WS shared1;
+
+    @Inject
+    @Named("sharedWs")
+    private WS shared2;
+
+    @Test
+    public void shared() {
+        assertEquals("hi", shared1.hi());
+        assertSame(shared1, shared2);
+    }
+
+    @Inject
+    private BeanManager bm;
+
+    @Test
+    public void thread() throws Exception {
+        final WS port = threadPort();
+        assertEquals("hi", port.hi());
+        assertSame(port, threadPort());
+
+        final ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(port, other.submit(new Callable<WS>() {
+                @Override
+                public WS call() throws Exception {
+                    return threadPort();
+                }
+            }).get());
+        } finally {
+            other.shutdownNow();
+        }
+
+        ClassLoaderLocal.release(Thread.currentThread().getContextClassLoader()); // empties the thread ports
+        assertNotSame(port, threadPort());
+    }
+
+    private WS threadPort() {
+        final Bean<?> bean = bm.resolve(bm.getBeans("threadWs"));
+        return WS.class.cast(bm.getReference(bean, WS.class, bm.createCreationalContext(bean)));
+    }
+
     @Test
     public void constructor() {
         assertNotNull(ws);